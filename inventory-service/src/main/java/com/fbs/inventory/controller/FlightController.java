@@ -1,13 +1,21 @@
 package com.fbs.inventory.controller;
 
+import com.fbs.inventory.dto.FlightChangesResponse;
 import com.fbs.inventory.entity.Flight;
 import com.fbs.inventory.service.FlightService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Nonnull;
 import org.springframework.lang.NonNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,15 +23,64 @@ import java.util.UUID;
 @RequestMapping("v1/flights")
 public class FlightController {
 
+    private static final Logger logger = LoggerFactory.getLogger(FlightController.class);
+
     @Autowired
     private FlightService flightService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/all")
     public ResponseEntity<List<Flight>> getAllFlights() {
         List<Flight> flights = flightService.getAllFlights();
         return ResponseEntity.ok(flights);
     }
 
+    /**
+     * Streams all active flights as NDJSON (one lean JSON object per line) in flight id order.
+     * Rows are read in bounded keyset pages and written as they arrive, so memory stays flat
+     * as the table grows.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFlights() {
+        StreamingResponseBody body = outputStream -> {
+            long start = System.nanoTime();
+            long exported = flightService.exportActiveFlights(row -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(row));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            outputStream.flush();
+            logger.info("Exported {} flights in {} ms", exported, (System.nanoTime() - start) / 1_000_000);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Flight inserts, updates and cancellations after the {@code since} change sequence, oldest
+     * first. Pass the returned watermark as {@code since} and the returned gaps as {@code gaps} on
+     * the next call.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<FlightChangesResponse> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) List<Long> gaps,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(flightService.getChangesSince(since, gaps != null ? gaps : List.of(), limit));
+    }
+
+    /**
+     * Latest change sequence. Read it before a full export to know where to start polling changes.
+     */
+    @GetMapping("/changes/head")
+    public ResponseEntity<Long> getChangesHead() {
+        return ResponseEntity.ok(flightService.getLatestChangeSequence());
+    }
+
     @GetMapping("/{flightId}")
     public ResponseEntity<Flight> getFlightById(@PathVariable @Nonnull UUID flightId) {
         Flight flight = flightService.getFlightById(flightId);
@@ -0,0 +1,13 @@
+package com.fbs.inventory.dto;
+
+import com.fbs.inventory.entity.FlightChangeType;
+
+import java.util.UUID;
+
+/**
+ * One entry of the change feed. {@code flight} carries the flight's current state when it is
+ * active and is null when it is cancelled or sold out, so consumers can apply entries as
+ * idempotent upserts and removals.
+ */
+public record FlightChangeRow(long sequence, UUID flightId, FlightChangeType changeType, FlightExportRow flight) {
+}
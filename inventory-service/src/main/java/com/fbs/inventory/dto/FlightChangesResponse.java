@@ -0,0 +1,15 @@
+package com.fbs.inventory.dto;
+
+import java.util.List;
+
+/**
+ * A page of the change feed.
+ *
+ * @param watermark sequence to pass as {@code since} on the next poll
+ * @param hasMore   true if more changes are waiting beyond this page
+ * @param gaps      sequences at or below the watermark that are not visible yet, because their
+ *                  transaction is still open or rolled back; pass them back as {@code gaps} on
+ *                  the next poll to pick up the ones that commit later
+ */
+public record FlightChangesResponse(List<FlightChangeRow> changes, long watermark, boolean hasMore, List<Long> gaps) {
+}
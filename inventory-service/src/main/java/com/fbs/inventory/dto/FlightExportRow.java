@@ -0,0 +1,14 @@
+package com.fbs.inventory.dto;
+
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Lean projection of an active flight for the bulk export. Only the columns search-service
+ * needs to build its graph and seed its seat availability are selected, and no JPA entity is
+ * materialised.
+ */
+public record FlightExportRow(UUID flightId, String flightNumber, String source, String destination,
+                              Double cost, Integer duration, LocalTime departureTime, LocalTime arrivalTime,
+                              Integer availableSeats) {
+}
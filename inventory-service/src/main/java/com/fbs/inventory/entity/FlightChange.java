@@ -0,0 +1,52 @@
+package com.fbs.inventory.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Change log of the flight schedule. Every insert, update and cancellation appends a row in the
+ * same transaction as the flight change; the identity column is the change sequence consumers
+ * keep as their watermark. Sequences are handed out before commit, so a lower one can become
+ * visible after a higher one, and one whose transaction rolled back never does.
+ */
+@Entity
+@Table(name = "flight_changes")
+public class FlightChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "sequence")
+    private Long sequence;
+
+    @Column(name = "flight_id", nullable = false)
+    private UUID flightId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false)
+    private FlightChangeType changeType;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    public FlightChange() {}
+
+    public FlightChange(UUID flightId, FlightChangeType changeType) {
+        this.flightId = flightId;
+        this.changeType = changeType;
+        this.changedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getSequence() { return sequence; }
+    public void setSequence(Long sequence) { this.sequence = sequence; }
+
+    public UUID getFlightId() { return flightId; }
+    public void setFlightId(UUID flightId) { this.flightId = flightId; }
+
+    public FlightChangeType getChangeType() { return changeType; }
+    public void setChangeType(FlightChangeType changeType) { this.changeType = changeType; }
+
+    public LocalDateTime getChangedAt() { return changedAt; }
+    public void setChangedAt(LocalDateTime changedAt) { this.changedAt = changedAt; }
+}
@@ -0,0 +1,7 @@
+package com.fbs.inventory.entity;
+
+public enum FlightChangeType {
+    CREATED,
+    UPDATED,
+    CANCELLED,
+}
@@ -0,0 +1,26 @@
+package com.fbs.inventory.repository;
+
+import com.fbs.inventory.entity.FlightChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FlightChangeRepository extends JpaRepository<FlightChange, Long> {
+
+    @Query("SELECT c FROM FlightChange c WHERE c.sequence > :since ORDER BY c.sequence")
+    List<FlightChange> findChangesSince(@Param("since") Long since, Pageable pageable);
+
+    // Re-reads sequences that were missing from an earlier page
+    @Query("SELECT c FROM FlightChange c WHERE c.sequence IN :sequences ORDER BY c.sequence")
+    List<FlightChange> findChangesIn(@Param("sequences") Collection<Long> sequences);
+
+    // Latest committed sequences, newest first
+    @Query("SELECT c.sequence FROM FlightChange c ORDER BY c.sequence DESC")
+    List<Long> findLatestSequences(Pageable pageable);
+}
@@ -1,6 +1,8 @@
 package com.fbs.inventory.repository;
 
+import com.fbs.inventory.dto.FlightExportRow;
 import com.fbs.inventory.entity.Flight;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -67,7 +70,24 @@ public interface FlightRepository extends JpaRepository<Flight, UUID> {
     int releaseSeats(@Param("flightId") UUID flightId,
                      @Param("numberOfSeats") Integer numberOfSeats);
 
+    // Seats left on a flight, null if it does not exist
+    @Query("SELECT f.availableSeats FROM Flight f WHERE f.flightId = :flightId")
+    Integer findAvailableSeats(@Param("flightId") UUID flightId);
+
     // Find all flights excluding CANCELLED and SOLD_OUT
     @Query("SELECT f FROM Flight f WHERE f.flightStatus NOT IN ('CANCELLED', 'SOLD_OUT')")
     List<Flight> findAllActiveFlights();
-}
\ No newline at end of file
+
+    // Keyset page of active flights after the given id, as a lean projection (use with an unsorted page request)
+    @Query("SELECT new com.fbs.inventory.dto.FlightExportRow(f.flightId, f.flightNumber, f.source, f.destination, " +
+           "f.cost, f.duration, f.departureTime, f.arrivalTime, f.availableSeats) FROM Flight f " +
+           "WHERE f.flightStatus NOT IN ('CANCELLED', 'SOLD_OUT') AND f.flightId > :afterId " +
+           "ORDER BY f.flightId")
+    List<FlightExportRow> findActiveFlightsAfter(@Param("afterId") UUID afterId, Pageable pageable);
+
+    // Current state of the given flights if they are still active, as the export projection
+    @Query("SELECT new com.fbs.inventory.dto.FlightExportRow(f.flightId, f.flightNumber, f.source, f.destination, " +
+           "f.cost, f.duration, f.departureTime, f.arrivalTime, f.availableSeats) FROM Flight f " +
+           "WHERE f.flightStatus NOT IN ('CANCELLED', 'SOLD_OUT') AND f.flightId IN :flightIds")
+    List<FlightExportRow> findActiveFlightsByIds(@Param("flightIds") Collection<UUID> flightIds);
+}
@@ -1,32 +1,162 @@
 package com.fbs.inventory.service;
 
+import com.fbs.inventory.dto.FlightChangeRow;
+import com.fbs.inventory.dto.FlightChangesResponse;
+import com.fbs.inventory.dto.FlightExportRow;
 import com.fbs.inventory.entity.Flight;
+import com.fbs.inventory.entity.FlightChange;
+import com.fbs.inventory.entity.FlightChangeType;
+import com.fbs.inventory.repository.FlightChangeRepository;
 import com.fbs.inventory.repository.FlightRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class FlightService {
 
     private static final Logger logger = LoggerFactory.getLogger(FlightService.class);
+    // Lowest UUID in PostgreSQL's ordering, the keyset start of an export
+    private static final UUID FIRST_FLIGHT_ID = new UUID(0L, 0L);
 
     @Autowired
     private FlightRepository flightRepository;
 
+    @Autowired
+    private FlightChangeRepository flightChangeRepository;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Value("${inventory.export.page-size:1000}")
+    private int exportPageSize;
+
+    @Value("${inventory.changes.max-page-size:1000}")
+    private int changesMaxPageSize;
+
+    @Value("${inventory.changes.max-gaps:1000}")
+    private int changesMaxGaps;
+
     public List<Flight> getAllFlights() {
         return flightRepository.findAllActiveFlights();
     }
 
+    /**
+     * Walks all active flights in flight id order, one keyset page at a time, so only a page of
+     * rows is held in memory regardless of table size.
+     * @return number of flights exported
+     */
+    public long exportActiveFlights(Consumer<FlightExportRow> consumer) {
+        UUID afterId = FIRST_FLIGHT_ID;
+        long exported = 0;
+        while (true) {
+            List<FlightExportRow> page = flightRepository.findActiveFlightsAfter(afterId, PageRequest.ofSize(exportPageSize));
+            for (FlightExportRow row : page) {
+                consumer.accept(row);
+            }
+            exported += page.size();
+            if (page.size() < exportPageSize) {
+                return exported;
+            }
+            afterId = page.get(page.size() - 1).flightId();
+        }
+    }
+
+    /**
+     * Changes recorded after the given sequence, oldest first, each joined with the flight's
+     * current state. Sequences are handed out before commit, so the page can skip ones whose
+     * transaction is still open; those are reported as gaps, and gaps passed back in are
+     * re-read and returned with the page once they have committed.
+     */
+    @Transactional(readOnly = true)
+    public FlightChangesResponse getChangesSince(long since, Collection<Long> gaps, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, changesMaxPageSize));
+        List<FlightChange> changes = flightChangeRepository.findChangesSince(since, PageRequest.ofSize(pageSize + 1));
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+
+        List<Long> requestedGaps = gaps.stream().distinct().sorted().limit(changesMaxGaps).toList();
+        List<FlightChange> filled = requestedGaps.isEmpty() ? List.of() : flightChangeRepository.findChangesIn(requestedGaps);
+        Set<Long> filledSequences = filled.stream().map(FlightChange::getSequence).collect(Collectors.toSet());
+        List<Long> openGaps = new ArrayList<>();
+        for (Long gap : requestedGaps) {
+            if (!filledSequences.contains(gap)) {
+                openGaps.add(gap);
+            }
+        }
+        collectGaps(since, changes, openGaps);
+
+        List<FlightChange> all = new ArrayList<>(filled.size() + changes.size());
+        all.addAll(filled);
+        all.addAll(changes);
+        Map<UUID, FlightExportRow> active = all.isEmpty() ? Map.of()
+                : flightRepository.findActiveFlightsByIds(all.stream().map(FlightChange::getFlightId).collect(Collectors.toSet()))
+                                  .stream()
+                                  .collect(Collectors.toMap(FlightExportRow::flightId, Function.identity()));
+
+        List<FlightChangeRow> rows = new ArrayList<>(all.size());
+        for (FlightChange change : all) {
+            // Carry the current state rather than the state at change time, so replaying a
+            // page twice or out of order converges on the same graph
+            rows.add(new FlightChangeRow(change.getSequence(), change.getFlightId(), change.getChangeType(),
+                    active.get(change.getFlightId())));
+        }
+        long watermark = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSequence();
+        return new FlightChangesResponse(rows, watermark, hasMore, openGaps);
+    }
+
+    // Adds the sequences the page skipped, up to the gap limit; a longer run is a sequence jump,
+    // not open transactions
+    private void collectGaps(long since, List<FlightChange> changes, List<Long> gaps) {
+        long expected = since + 1;
+        for (FlightChange change : changes) {
+            for (long sequence = expected; sequence < change.getSequence() && gaps.size() < changesMaxGaps; sequence++) {
+                gaps.add(sequence);
+            }
+            expected = change.getSequence() + 1;
+        }
+    }
+
+    /**
+     * @return a change sequence below every sequence that may still commit, as far as the latest
+     *         changes show; a consumer that takes a full export after reading it can poll changes
+     *         from here without missing any (changes the export already reflects are replayed,
+     *         which is harmless)
+     */
+    public long getLatestChangeSequence() {
+        List<Long> latest = new ArrayList<>(flightChangeRepository.findLatestSequences(PageRequest.ofSize(changesMaxGaps)));
+        if (latest.size() < changesMaxGaps) {
+            // The whole log was read, so anything missing below its oldest row is open too
+            latest.add(0L);
+        }
+        long head = latest.isEmpty() ? 0 : latest.get(0);
+        for (int i = 1; i < latest.size(); i++) {
+            if (latest.get(i) < latest.get(i - 1) - 1) {
+                head = latest.get(i);
+            }
+        }
+        return head;
+    }
+
     public Flight getFlightById(UUID flightId) {
         return flightRepository.findByFlightId(flightId);
     }
@@ -46,6 +176,9 @@ public class FlightService {
     @Transactional
     public boolean reserveSeats(UUID flightId, Integer numberOfSeats) {
         int rowsUpdated = flightRepository.reserveSeats(flightId, numberOfSeats);
+        if (rowsUpdated > 0) {
+            publishSeatsChangedAfterCommit(flightId);
+        }
         return rowsUpdated > 0;
     }
 
@@ -54,13 +187,18 @@ public class FlightService {
      */
     @Transactional
     public void releaseSeats(UUID flightId, Integer numberOfSeats) {
-        flightRepository.releaseSeats(flightId, numberOfSeats);
+        if (flightRepository.releaseSeats(flightId, numberOfSeats) > 0) {
+            publishSeatsChangedAfterCommit(flightId);
+        }
     }
 
     // Admin operations
     @Transactional
     public Flight addFlight(Flight flight) {
-        return flightRepository.save(flight);
+        boolean exists = flight.getFlightId() != null && flightRepository.existsById(flight.getFlightId());
+        Flight savedFlight = flightRepository.save(flight);
+        recordChange(savedFlight.getFlightId(), exists ? FlightChangeType.UPDATED : FlightChangeType.CREATED);
+        return savedFlight;
     }
 
     @Transactional
@@ -69,6 +207,7 @@ public class FlightService {
         if (flight != null) {
             flight.setFlightStatus(com.fbs.inventory.entity.FlightStatus.CANCELLED);
             Flight cancelledFlight = flightRepository.save(flight);
+            recordChange(flightId, FlightChangeType.CANCELLED);
 
             // Publish event for cancelled flight
             publishFlightCancelledEvent(cancelledFlight);
@@ -78,10 +217,40 @@ public class FlightService {
         return null;
     }
 
+    // Appended in the caller's transaction, so a change is visible exactly when the flight row is
+    private void recordChange(UUID flightId, FlightChangeType changeType) {
+        flightChangeRepository.save(new FlightChange(flightId, changeType));
+    }
+
+    // Seat counts are read inside the transaction but only announced once it commits, so
+    // search-service never filters on a reservation that was rolled back
+    private void publishSeatsChangedAfterCommit(UUID flightId) {
+        Integer availableSeats = flightRepository.findAvailableSeats(flightId);
+        if (availableSeats == null) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publishSeatsChangedEvent(flightId, availableSeats);
+            }
+        });
+    }
+
+    private void publishSeatsChangedEvent(UUID flightId, int availableSeats) {
+        try {
+            String eventMessage = String.format("%s:%s:%d", "SEATS_CHANGED", flightId, availableSeats);
+            redisTemplate.convertAndSend("flight-events", eventMessage);
+            logger.debug("Published seats changed event for {}: {} available", flightId, availableSeats);
+        } catch (Exception e) {
+            logger.error("Failed to publish seats changed event: {}", e.getMessage());
+        }
+    }
+
     private void publishFlightCancelledEvent(Flight flight) {
         try {
-            String eventMessage = String.format("%s:%s:%s",
-                "FLIGHT_CANCELLED", flight.getSource(), flight.getDestination());
+            String eventMessage = String.format("%s:%s:%s:%s",
+                "FLIGHT_CANCELLED", flight.getSource(), flight.getDestination(), flight.getFlightId());
             redisTemplate.convertAndSend("flight-events", eventMessage);
             logger.info("Published flight cancelled event for {}→{}", flight.getSource(), flight.getDestination());
         } catch (Exception e) {
@@ -0,0 +1,234 @@
+package com.fbs.inventory.service;
+
+import com.fbs.inventory.dto.FlightChangeRow;
+import com.fbs.inventory.dto.FlightChangesResponse;
+import com.fbs.inventory.dto.FlightExportRow;
+import com.fbs.inventory.entity.Flight;
+import com.fbs.inventory.entity.FlightChange;
+import com.fbs.inventory.entity.FlightChangeType;
+import com.fbs.inventory.entity.FlightStatus;
+import com.fbs.inventory.repository.FlightChangeRepository;
+import com.fbs.inventory.repository.FlightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FlightServiceTest {
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    @Mock
+    private FlightChangeRepository flightChangeRepository;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @InjectMocks
+    private FlightService flightService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(flightService, "exportPageSize", 2);
+        ReflectionTestUtils.setField(flightService, "changesMaxPageSize", 2);
+        ReflectionTestUtils.setField(flightService, "changesMaxGaps", 3);
+    }
+
+    @Test
+    void exportActiveFlights_ContinuesAfterLastIdOfEachFullPage() {
+        FlightExportRow first = row(1);
+        FlightExportRow second = row(2);
+        FlightExportRow third = row(3);
+        when(flightRepository.findActiveFlightsAfter(eq(new UUID(0L, 0L)), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        when(flightRepository.findActiveFlightsAfter(eq(second.flightId()), any(Pageable.class)))
+                .thenReturn(List.of(third));
+
+        List<FlightExportRow> exported = new ArrayList<>();
+        long count = flightService.exportActiveFlights(exported::add);
+
+        assertEquals(3, count);
+        assertEquals(List.of(first, second, third), exported);
+        verify(flightRepository, times(2)).findActiveFlightsAfter(any(), any(Pageable.class));
+    }
+
+    @Test
+    void exportActiveFlights_StopsAfterEmptyPageWhenLastPageWasFull() {
+        FlightExportRow first = row(1);
+        FlightExportRow second = row(2);
+        when(flightRepository.findActiveFlightsAfter(eq(new UUID(0L, 0L)), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        when(flightRepository.findActiveFlightsAfter(eq(second.flightId()), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        assertEquals(2, flightService.exportActiveFlights(row -> {}));
+        verify(flightRepository, times(2)).findActiveFlightsAfter(any(), any(Pageable.class));
+    }
+
+    @Test
+    void getChangesSince_ReturnsOnePageAndWatermarkOfItsLastChange() {
+        FlightExportRow active = row(1);
+        UUID cancelled = new UUID(0L, 2L);
+        when(flightChangeRepository.findChangesSince(eq(10L), any(Pageable.class))).thenReturn(List.of(
+                change(11, active.flightId(), FlightChangeType.UPDATED),
+                change(12, cancelled, FlightChangeType.CANCELLED),
+                change(13, new UUID(0L, 3L), FlightChangeType.CREATED)));
+        when(flightRepository.findActiveFlightsByIds(Set.of(active.flightId(), cancelled))).thenReturn(List.of(active));
+
+        FlightChangesResponse response = flightService.getChangesSince(10, List.of(), 100);
+
+        assertTrue(response.hasMore());
+        assertEquals(12, response.watermark());
+        assertEquals(2, response.changes().size());
+        assertEquals(active, response.changes().get(0).flight());
+        assertEquals(FlightChangeType.CANCELLED, response.changes().get(1).changeType());
+        assertNull(response.changes().get(1).flight());
+        assertTrue(response.gaps().isEmpty());
+    }
+
+    @Test
+    void getChangesSince_KeepsWatermarkWhenNothingChanged() {
+        when(flightChangeRepository.findChangesSince(eq(10L), any(Pageable.class))).thenReturn(List.of());
+
+        FlightChangesResponse response = flightService.getChangesSince(10, List.of(), 100);
+
+        assertFalse(response.hasMore());
+        assertEquals(10, response.watermark());
+        assertTrue(response.changes().isEmpty());
+        verify(flightRepository, never()).findActiveFlightsByIds(any());
+        verify(flightChangeRepository, never()).findChangesIn(any());
+    }
+
+    @Test
+    void getChangesSince_ReportsSkippedSequencesAsGaps() {
+        when(flightChangeRepository.findChangesSince(eq(10L), any(Pageable.class))).thenReturn(List.of(
+                change(12, new UUID(0L, 1L), FlightChangeType.UPDATED)));
+
+        FlightChangesResponse response = flightService.getChangesSince(10, List.of(), 100);
+
+        // 11 is still open: the watermark moves past it, the gap is handed back to the consumer
+        assertEquals(12, response.watermark());
+        assertEquals(List.of(11L), response.gaps());
+    }
+
+    @Test
+    void getChangesSince_ReturnsGapsThatCommittedAndKeepsTheRest() {
+        UUID late = new UUID(0L, 1L);
+        UUID next = new UUID(0L, 2L);
+        when(flightChangeRepository.findChangesIn(List.of(8L, 9L))).thenReturn(List.of(change(8, late, FlightChangeType.CANCELLED)));
+        when(flightChangeRepository.findChangesSince(eq(10L), any(Pageable.class))).thenReturn(List.of(
+                change(11, next, FlightChangeType.CANCELLED)));
+
+        FlightChangesResponse response = flightService.getChangesSince(10, List.of(9L, 8L), 100);
+
+        assertEquals(List.of(8L, 11L), response.changes().stream().map(FlightChangeRow::sequence).toList());
+        assertEquals(late, response.changes().get(0).flightId());
+        assertEquals(11, response.watermark());
+        assertEquals(List.of(9L), response.gaps());
+    }
+
+    @Test
+    void getChangesSince_LimitsTrackedGaps() {
+        when(flightChangeRepository.findChangesSince(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                change(100, new UUID(0L, 1L), FlightChangeType.UPDATED)));
+
+        FlightChangesResponse response = flightService.getChangesSince(0, List.of(), 100);
+
+        assertEquals(List.of(1L, 2L, 3L), response.gaps());
+        assertEquals(100, response.watermark());
+    }
+
+    @Test
+    void getLatestChangeSequence_StaysBelowLowestGapOfLatestChanges() {
+        when(flightChangeRepository.findLatestSequences(any(Pageable.class))).thenReturn(List.of(20L, 19L, 17L));
+
+        assertEquals(17, flightService.getLatestChangeSequence());
+    }
+
+    @Test
+    void getLatestChangeSequence_CountsSequencesBelowAShortLogAsOpen() {
+        when(flightChangeRepository.findLatestSequences(any(Pageable.class))).thenReturn(List.of(3L, 2L));
+
+        assertEquals(0, flightService.getLatestChangeSequence());
+    }
+
+    @Test
+    void getLatestChangeSequence_ReturnsLatestWhenNothingIsMissing() {
+        when(flightChangeRepository.findLatestSequences(any(Pageable.class))).thenReturn(List.of(3L, 2L, 1L));
+
+        assertEquals(3, flightService.getLatestChangeSequence());
+    }
+
+    @Test
+    void addFlight_RecordsCreatedForNewAndUpdatedForExistingFlight() {
+        Flight created = flight(new UUID(0L, 1L));
+        Flight updated = flight(new UUID(0L, 2L));
+        when(flightRepository.existsById(created.getFlightId())).thenReturn(false);
+        when(flightRepository.existsById(updated.getFlightId())).thenReturn(true);
+        when(flightRepository.save(any(Flight.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        flightService.addFlight(created);
+        flightService.addFlight(updated);
+
+        ArgumentCaptor<FlightChange> changes = ArgumentCaptor.forClass(FlightChange.class);
+        verify(flightChangeRepository, times(2)).save(changes.capture());
+        assertEquals(created.getFlightId(), changes.getAllValues().get(0).getFlightId());
+        assertEquals(FlightChangeType.CREATED, changes.getAllValues().get(0).getChangeType());
+        assertEquals(updated.getFlightId(), changes.getAllValues().get(1).getFlightId());
+        assertEquals(FlightChangeType.UPDATED, changes.getAllValues().get(1).getChangeType());
+    }
+
+    @Test
+    void cancelFlight_RecordsCancelledChange() {
+        Flight flight = flight(new UUID(0L, 1L));
+        when(flightRepository.findByFlightId(flight.getFlightId())).thenReturn(flight);
+        when(flightRepository.save(flight)).thenReturn(flight);
+
+        Flight cancelled = flightService.cancelFlight(flight.getFlightId());
+
+        assertEquals(FlightStatus.CANCELLED, cancelled.getFlightStatus());
+        ArgumentCaptor<FlightChange> change = ArgumentCaptor.forClass(FlightChange.class);
+        verify(flightChangeRepository).save(change.capture());
+        assertEquals(flight.getFlightId(), change.getValue().getFlightId());
+        assertEquals(FlightChangeType.CANCELLED, change.getValue().getChangeType());
+    }
+
+    private static FlightChange change(long sequence, UUID flightId, FlightChangeType changeType) {
+        FlightChange change = new FlightChange(flightId, changeType);
+        change.setSequence(sequence);
+        return change;
+    }
+
+    private static Flight flight(UUID flightId) {
+        Flight flight = new Flight();
+        flight.setFlightId(flightId);
+        flight.setSource("DEL");
+        flight.setDestination("BOM");
+        flight.setFlightStatus(FlightStatus.SCHEDULED);
+        return flight;
+    }
+
+    private static FlightExportRow row(long id) {
+        return new FlightExportRow(new UUID(0L, id), "AI" + id, "DEL", "BOM", 5000.0, 120,
+                LocalTime.of(8, 0), LocalTime.of(10, 0), 50);
+    }
+}
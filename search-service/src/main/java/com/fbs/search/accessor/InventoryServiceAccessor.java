@@ -1,19 +1,25 @@
 package com.fbs.search.accessor;
 
 import com.fbs.search.dto.Flight;
+import com.fbs.search.dto.FlightChanges;
 import com.fbs.search.exception.SearchServiceError;
 import com.fbs.search.exception.SearchServiceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Component
 public class InventoryServiceAccessor {
@@ -54,6 +60,100 @@ public class InventoryServiceAccessor {
         }
     }
 
+    /**
+     * Streams all active flights from the NDJSON export, handing each one to the consumer as it
+     * is decoded, so the full flight list is never buffered. The timeout applies between records.
+     * Falls back to {@link #getAllFlights()} when inventory-service has no export endpoint yet.
+     * @return number of flights received
+     * @throws SearchServiceException if inventory service is unavailable
+     */
+    public long streamAllFlights(Consumer<Flight> consumer) {
+        try {
+            logger.debug("Streaming all flights from inventory service");
+            Long count = webClient.get()
+                    .uri("/v1/flights/export")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .retrieve()
+                    .bodyToFlux(Flight.class)
+                    .timeout(Duration.ofSeconds(30))
+                    .doOnNext(consumer)
+                    .count()
+                    .block();
+
+            logger.info("Successfully streamed {} flights from inventory service", count);
+            return count != null ? count : 0L;
+
+        } catch (WebClientResponseException.NotFound e) {
+            logger.warn("Inventory service has no flight export endpoint, falling back to /v1/flights/all");
+            List<Flight> flights = getAllFlights();
+            if (flights == null) {
+                return 0L;
+            }
+            flights.forEach(consumer);
+            return flights.size();
+        } catch (WebClientException e) {
+            logger.error("Error communicating with inventory service", e);
+            throw new SearchServiceException(SearchServiceError.INVENTORY_SERVICE_ERROR);
+        } catch (SearchServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Unexpected error while streaming flights", e);
+            throw new SearchServiceException(SearchServiceError.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Latest change sequence of the flight schedule. Read it before a full export; polling
+     * changes from it afterwards misses nothing.
+     * @return the sequence, or empty when inventory-service has no change feed
+     * @throws SearchServiceException if inventory service is unavailable
+     */
+    public OptionalLong getChangesHead() {
+        try {
+            Long head = webClient.get()
+                    .uri("/v1/flights/changes/head")
+                    .retrieve()
+                    .bodyToMono(Long.class)
+                    .timeout(Duration.ofSeconds(10))
+                    .block();
+            return head != null ? OptionalLong.of(head) : OptionalLong.empty();
+        } catch (WebClientResponseException.NotFound e) {
+            logger.warn("Inventory service has no flight change feed, delta sync is unavailable");
+            return OptionalLong.empty();
+        } catch (WebClientException e) {
+            logger.error("Error fetching flight change head", e);
+            throw new SearchServiceException(SearchServiceError.INVENTORY_SERVICE_ERROR);
+        }
+    }
+
+    /**
+     * @param gaps sequences earlier pages reported as not yet committed; the ones that have
+     *             committed since are returned with the page
+     * @return up to {@code limit} flight changes after the {@code since} sequence, oldest first
+     * @throws SearchServiceException if inventory service is unavailable
+     */
+    public FlightChanges getFlightChanges(long since, Collection<Long> gaps, int limit) {
+        try {
+            return webClient.get()
+                    .uri(uriBuilder -> {
+                        uriBuilder.path("/v1/flights/changes")
+                                .queryParam("since", since)
+                                .queryParam("limit", limit);
+                        if (!gaps.isEmpty()) {
+                            uriBuilder.queryParam("gaps", gaps.toArray());
+                        }
+                        return uriBuilder.build();
+                    })
+                    .retrieve()
+                    .bodyToMono(FlightChanges.class)
+                    .timeout(Duration.ofSeconds(10))
+                    .block();
+        } catch (WebClientException e) {
+            logger.error("Error fetching flight changes since {}", since, e);
+            throw new SearchServiceException(SearchServiceError.INVENTORY_SERVICE_ERROR);
+        }
+    }
+
     public Flight getFlightById(UUID flightId) {
         try {
             return webClient.get()
@@ -0,0 +1,168 @@
+package com.fbs.search.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "search")
+public class SearchConfig {
+
+    private Precompute precompute = new Precompute();
+    private Cache cache = new Cache();
+    private NearCache nearCache = new NearCache();
+    private OnDemand onDemand = new OnDemand();
+    private Snapshot snapshot = new Snapshot();
+    private Sync sync = new Sync();
+    private Contraction contraction = new Contraction();
+    private Pareto pareto = new Pareto();
+    private Timetable timetable = new Timetable();
+    private Filters filters = new Filters();
+
+    @Data
+    public static class Precompute {
+        /** Worker threads for the all-pairs precompute; 0 uses every available core. */
+        private int parallelism = 0;
+        private int pathsPerRoute = 10;
+        /** Destinations per task before a source's work is split further for stealing. */
+        private int destinationsPerTask = 16;
+        private int progressLogIntervalSeconds = 10;
+        /** Largest network that is precomputed for all pairs; 0 for no limit. Larger networks are served on demand. */
+        private int maxCities = 0;
+        /** Stop bounds (maxStops values) precomputed for CHEAPEST and FASTEST next to the unbounded results. */
+        private List<Integer> stopBounds = new ArrayList<>();
+
+        public int resolveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    @Data
+    public static class Cache {
+        /** Keys sent per Redis pipeline by the bulk write path. */
+        private int writeBatchSize = 1000;
+        /** Format used for new cache entries; both formats are always readable. */
+        private Encoding encoding = Encoding.BINARY;
+        /** How often readers re-read the active generation pointer. */
+        private long generationRefreshMillis = 1000;
+        /** Grace period before a replaced generation is deleted, so in-flight readers can finish. */
+        private long generationReclaimDelaySeconds = 60;
+    }
+
+    @Data
+    public static class NearCache {
+        private boolean enabled = true;
+        private long maxEntries = 10_000;
+        private long ttlSeconds = 60;
+    }
+
+    @Data
+    public static class OnDemand {
+        /** Compute missing routes from the in-memory graph instead of answering 204. */
+        private boolean enabled = true;
+        /** Write computed results back to Redis so the next miss is a hit. */
+        private boolean writeBack = true;
+        /** How long Redis is bypassed after it fails, before it is tried again. */
+        private long redisRetrySeconds = 5;
+        /** Search engine used when a query does not pick one. */
+        private Engine engine = Engine.DIJKSTRA;
+        /** Landmarks per graph for the ALT engine. */
+        private int landmarks = 8;
+    }
+
+    @Data
+    public static class Snapshot {
+        /** Start from the local graph snapshot file and reconcile with inventory in the background. */
+        private boolean enabled = true;
+        private String path = "data/graph.snapshot";
+        /** Delay between reconcile attempts while inventory-service is unreachable. */
+        private long reconcileRetrySeconds = 30;
+    }
+
+    @Data
+    public static class Sync {
+        /** Keep the graph fresh by polling inventory's change feed. */
+        private boolean enabled = true;
+        private long pollIntervalSeconds = 30;
+        /** Changes requested per page of the feed. */
+        private int pageSize = 500;
+        /**
+         * How long a skipped change sequence is re-read before it is given up as rolled back;
+         * a transaction open longer than this loses its change until the next full load.
+         */
+        private long gapTimeoutSeconds = 300;
+    }
+
+    @Data
+    public static class Contraction {
+        /** Build a contraction hierarchy on the duration weight for every published graph. */
+        private boolean enabled = true;
+        /** Answer on-demand FASTEST searches that name no engine from the hierarchy. */
+        private boolean defaultForFastest = true;
+        /** Airports a witness search may settle; hitting the limit only adds a shortcut. */
+        private int witnessSettleLimit = 500;
+        /** Random airport pairs timed with and without the hierarchy after each build. */
+        private int benchmarkQueries = 64;
+    }
+
+    @Data
+    public static class Pareto {
+        /** Cache the Pareto front of every route next to CHEAPEST and FASTEST. */
+        private boolean precompute = true;
+        /** Labels an airport may hold during the search; more only on unusually wide fronts. */
+        private int maxLabelsPerCity = 256;
+        /** Points kept from a front; larger fronts keep both ends and evenly spaced points. */
+        private int maxFrontSize = 20;
+    }
+
+    @Data
+    public static class Timetable {
+        /** Minimum time between landing and the next departure at an airport without an override. */
+        private int minConnectionMinutes = 45;
+        /** Per-airport minimum connection times, e.g. {BOM: 75}. */
+        private Map<String, Integer> airportMinConnectionMinutes = new HashMap<>();
+        /** Days of the daily schedule an EARLIEST_ARRIVAL itinerary may span. */
+        private int horizonDays = 2;
+
+        public int resolveMinConnectionMinutes(String airport) {
+            return airportMinConnectionMinutes.getOrDefault(airport, minConnectionMinutes);
+        }
+    }
+
+    @Data
+    public static class Filters {
+        /**
+         * Paths a filter must leave of a full cached result; fewer trigger an on-demand
+         * search with the filter applied during traversal.
+         */
+        private int minResults = 3;
+        /** Paths fetched per requested path when a price or duration cap is post-filtered. */
+        private int overFetchFactor = 4;
+    }
+
+    public enum Encoding {
+        JSON,
+        BINARY
+    }
+
+    /**
+     * Single-pair shortest-path engines. All of them return the same exact paths and differ only
+     * in how much of the network they explore.
+     */
+    public enum Engine {
+        /** Plain Dijkstra from the source. */
+        DIJKSTRA,
+        /** A* with landmark (ALT) lower bounds, goal-directed towards the destination. */
+        ALT,
+        /** Dijkstra from both ends, meeting in the middle. */
+        BIDIRECTIONAL,
+        /** Contraction hierarchy on the duration weight; CHEAPEST searches run plain Dijkstra. */
+        CH
+    }
+}
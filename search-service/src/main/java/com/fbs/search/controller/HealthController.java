@@ -1,16 +1,59 @@
 package com.fbs.search.controller;
 
+import com.fbs.search.model.GraphSnapshot;
+import com.fbs.search.service.GraphService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/health")
 public class HealthController {
 
+    @Autowired
+    private GraphService graphService;
+
+    /**
+     * Liveness: the process is up, whether or not the graph is built yet.
+     */
     @GetMapping
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Search Service is running");
     }
-}
\ No newline at end of file
+
+    /**
+     * Readiness: 200 once a flight graph is published and searches can be answered, 503 before.
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        Map<String, Object> body = warmupBody();
+        return ResponseEntity.status(graphService.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
+    @GetMapping("/warmup")
+    public ResponseEntity<Map<String, Object>> warmup() {
+        return ResponseEntity.ok(warmupBody());
+    }
+
+    private Map<String, Object> warmupBody() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ready", graphService.isReady());
+        body.putAll(graphService.getWarmupStatus().toMap());
+
+        GraphSnapshot snapshot = graphService.getSnapshot();
+        if (snapshot != null) {
+            body.put("graphVersion", snapshot.version());
+            body.put("graphBuiltAt", snapshot.builtAt());
+            body.put("cities", snapshot.graph().getCityCount());
+            body.put("flights", snapshot.graph().getEdgeCount());
+            body.put("changeWatermark", graphService.getChangeWatermark());
+        }
+        return body;
+    }
+}
@@ -1,47 +1,137 @@
 package com.fbs.search.controller;
 
+import com.fbs.search.config.SearchConfig;
 import com.fbs.search.model.CachedSearchResult;
+import com.fbs.search.model.SearchFilter;
+import com.fbs.search.service.FlightSearchService;
 import com.fbs.search.service.RedisFlightCacheService;
+import com.fbs.search.service.SearchNearCache;
+import com.fbs.search.service.SeatAvailability;
+import com.fbs.search.util.ParetoRanking;
 import com.fbs.search.util.ValidationUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/v1/search")
 public class SearchController {
 
+    private static final double BALANCED_COST_WEIGHT = 0.5;
+    // Tells a filtered response apart from one narrowed from the cache: true if the cached
+    // paths were not enough and the search ran again with the filter
+    private static final String FILTER_RECOMPUTED_HEADER = "X-Filter-Recomputed";
+
+    @Autowired
+    private FlightSearchService searchService;
+
     @Autowired
     private RedisFlightCacheService cacheService;
 
+    @Autowired
+    private SearchNearCache nearCache;
+
+    @Autowired
+    private SeatAvailability seatAvailability;
+
     @GetMapping
     public ResponseEntity<CachedSearchResult> searchFlights(
             @RequestParam @NonNull String source,
             @RequestParam @NonNull String destination,
             @RequestParam @NonNull String date,
-            @RequestParam String criteria) {
+            @RequestParam String criteria,
+            @RequestParam(required = false) String engine,
+            @RequestParam(required = false) String maxStops,
+            @RequestParam(required = false) String costWeight,
+            @RequestParam(required = false) String departAfter,
+            @RequestParam(required = false, defaultValue = "false") boolean distinctRoutings,
+            @RequestParam(required = false) String passengers,
+            @RequestParam(required = false) String airlines,
+            @RequestParam(required = false) String excludeAirports,
+            @RequestParam(required = false) String maxPrice,
+            @RequestParam(required = false) String maxDuration,
+            @RequestParam(required = false) String departFrom,
+            @RequestParam(required = false) String departTo) {
 
         // Validate criteria using utility
         criteria = ValidationUtil.validateSearchCriteria(criteria);
+        SearchConfig.Engine searchEngine = ValidationUtil.validateSearchEngine(engine);
+        Integer stopBound = ValidationUtil.validateMaxStops(maxStops);
+        Double weight = ValidationUtil.validateCostWeight(costWeight);
+        LocalTime departAfterTime = ValidationUtil.validateDepartAfter(departAfter);
+        int partySize = ValidationUtil.validatePassengers(passengers);
+        SearchFilter filter = ValidationUtil.validateFilter(airlines, excludeAirports, maxPrice, maxDuration,
+                departFrom, departTo);
 
         try {
             LocalDate searchDate = LocalDate.parse(date);
+            String sourceCode = source.toUpperCase();
+            String destinationCode = destination.toUpperCase();
+            // The near cache is date independent, so the horizon is checked before it
+            if (!cacheService.isWithinBookingHorizon(searchDate)) {
+                return ResponseEntity.noContent().build();
+            }
+            // BALANCED is the Pareto front ranked with equal weights; both share one cached front
+            boolean balanced = criteria.equals("BALANCED");
+            String searchCriteria = balanced ? "PARETO" : criteria;
+            Double rankWeight = weight == null && balanced ? BALANCED_COST_WEIGHT : weight;
+
+            // Only timetable searches depend on the departure time
+            LocalTime after = searchCriteria.equals("EARLIEST_ARRIVAL") ? departAfterTime : null;
+            // Pareto fronts and timetable answers are not enumerated by routing
+            boolean routings = distinctRoutings && !searchCriteria.equals("PARETO")
+                    && !searchCriteria.equals("EARLIEST_ARRIVAL");
+            String criteriaKey = RedisFlightCacheService.criteriaKey(searchCriteria, stopBound, after, routings);
 
-            Optional<CachedSearchResult> result = cacheService.getCachedResults(
-                    source.toUpperCase(),
-                    destination.toUpperCase(),
-                    searchDate,
-                    criteria.toUpperCase()
-            );
+            Optional<CachedSearchResult> result = nearCache.get(sourceCode, destinationCode, criteriaKey,
+                    () -> searchService.search(sourceCode, destinationCode, searchDate, searchCriteria, searchEngine,
+                            stopBound, after, routings));
 
-            return result.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.noContent().build());
+            // Filters narrow the shared cached result and only search again when too little is left
+            boolean recomputed = false;
+            if (!filter.isEmpty()) {
+                FlightSearchService.FilteredResult filtered = searchService.filter(result, filter, sourceCode,
+                        destinationCode, searchCriteria, searchEngine, stopBound, after, routings);
+                result = filtered.result();
+                recomputed = filtered.recomputed();
+            }
+
+            // Cached paths are shared by every party size; legs without enough seats are dropped per request
+            result = result.map(paths -> seatAvailability.filter(paths, partySize));
+            if (rankWeight != null && searchCriteria.equals("PARETO")) {
+                result = result.map(front -> ParetoRanking.rank(front, rankWeight));
+            }
+            HttpHeaders headers = new HttpHeaders();
+            if (!filter.isEmpty()) {
+                headers.set(FILTER_RECOMPUTED_HEADER, String.valueOf(recomputed));
+            }
+            return result.map(body -> ResponseEntity.ok().headers(headers).body(body))
+                         .orElseGet(() -> ResponseEntity.noContent().headers(headers).build());
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @GetMapping("/on-demand/stats")
+    public ResponseEntity<Map<String, Object>> onDemandStats() {
+        return ResponseEntity.ok(searchService.getStats());
+    }
+
+    @GetMapping("/seats/stats")
+    public ResponseEntity<Map<String, Object>> seatStats() {
+        return ResponseEntity.ok(seatAvailability.getStats());
+    }
+
+    @GetMapping("/near-cache/stats")
+    public ResponseEntity<Map<String, Object>> nearCacheStats() {
+        return ResponseEntity.ok(nearCache.getStats());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.fbs.search.dto;
+
+import java.util.UUID;
+
+/**
+ * One entry of inventory's change feed. {@code flight} is the flight's current state when it is
+ * active and null when it has been cancelled or sold out.
+ */
+public record FlightChange(long sequence, UUID flightId, String changeType, Flight flight) {
+
+    public boolean isRemoval() {
+        return flight == null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.fbs.search.dto;
+
+import java.util.List;
+
+/**
+ * A page of inventory's change feed; {@code watermark} is the {@code since} for the next page and
+ * {@code gaps} are the sequences at or below it that have not committed yet.
+ */
+public record FlightChanges(List<FlightChange> changes, long watermark, boolean hasMore, List<Long> gaps) {
+
+    public FlightChanges {
+        // Inventory versions that predate gap tracking leave the field out
+        gaps = gaps != null ? gaps : List.of();
+    }
+}
@@ -9,9 +9,15 @@ import org.springframework.http.HttpStatus;
 public enum SearchServiceError {
 
     // Validation Errors
-    INVALID_SEARCH_CRITERIA(12001, "Invalid search criteria. Must be CHEAPEST or FASTEST", HttpStatus.BAD_REQUEST),
+    INVALID_SEARCH_CRITERIA(12001, "Invalid search criteria. Must be CHEAPEST, FASTEST, FEWEST_STOPS, PARETO, BALANCED or EARLIEST_ARRIVAL", HttpStatus.BAD_REQUEST),
     INVALID_DATE_FORMAT(12002, "Invalid date format. Expected YYYY-MM-DD", HttpStatus.BAD_REQUEST),
     MISSING_REQUIRED_PARAMETER(12003, "Missing required parameter", HttpStatus.BAD_REQUEST),
+    INVALID_SEARCH_ENGINE(12004, "Invalid search engine. Must be DIJKSTRA, ALT, BIDIRECTIONAL or CH", HttpStatus.BAD_REQUEST),
+    INVALID_MAX_STOPS(12005, "Invalid maxStops. Must be a number between 0 and 10", HttpStatus.BAD_REQUEST),
+    INVALID_COST_WEIGHT(12006, "Invalid costWeight. Must be a number between 0 and 1", HttpStatus.BAD_REQUEST),
+    INVALID_DEPART_AFTER(12007, "Invalid departAfter. Expected HH:mm", HttpStatus.BAD_REQUEST),
+    INVALID_PASSENGERS(12008, "Invalid passengers. Must be a number between 1 and 9", HttpStatus.BAD_REQUEST),
+    INVALID_FILTER(12009, "Invalid filter. Expected airline designators, airport codes, a positive maxPrice and maxDuration and HH:mm departure bounds", HttpStatus.BAD_REQUEST),
 
     // Service Errors
     CACHE_SERVICE_ERROR(12011, "Cache service error", HttpStatus.INTERNAL_SERVER_ERROR),
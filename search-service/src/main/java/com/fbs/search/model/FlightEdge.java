@@ -1,6 +1,7 @@
 package com.fbs.search.model;
 
 import java.math.BigDecimal;
+import java.time.LocalTime;
 import java.util.UUID;
 
 public class FlightEdge {
@@ -10,15 +11,28 @@ public class FlightEdge {
     private BigDecimal cost;
     private Integer duration;
     private String flightNumber;
+    private LocalTime departureTime;
+    private LocalTime arrivalTime;
 
     public FlightEdge(UUID flightId, String source, String destination, 
                      BigDecimal cost, Integer duration, String flightNumber) {
+        this(flightId, source, destination, cost, duration, flightNumber, null, null);
+    }
+
+    /**
+     * @param departureTime daily departure time, or null if the flight has no timetable entry
+     * @param arrivalTime   daily arrival time; may be on the next day, see the duration
+     */
+    public FlightEdge(UUID flightId, String source, String destination, BigDecimal cost, Integer duration,
+                      String flightNumber, LocalTime departureTime, LocalTime arrivalTime) {
         this.flightId = flightId;
         this.source = source;
         this.destination = destination;
         this.cost = cost;
         this.duration = duration;
         this.flightNumber = flightNumber;
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
     }
 
     public UUID getFlightId() {
@@ -44,4 +58,12 @@ public class FlightEdge {
     public String getFlightNumber() {
         return flightNumber;
     }
+
+    public LocalTime getDepartureTime() {
+        return departureTime;
+    }
+
+    public LocalTime getArrivalTime() {
+        return arrivalTime;
+    }
 }
\ No newline at end of file
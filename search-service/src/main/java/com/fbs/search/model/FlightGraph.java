@@ -1,25 +1,99 @@
 package com.fbs.search.model;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.*;
 
+/**
+ * Immutable flight network in compressed-sparse-row form.
+ *
+ * Airport codes are interned to dense ids (sorted by code, so ids are stable for a given
+ * network) and the outgoing edges of airport {@code i} occupy
+ * {@code [edgeOffsets[i], edgeOffsets[i + 1])} of the parallel edge arrays. Costs are stored
+ * as fixed-point paise and durations as minutes, so one instance serves both the cost and the
+ * duration weight. Departures are kept as minutes after midnight ({@link #NO_DEPARTURE} for
+ * flights without a timetable entry) for timetable-aware searches. The airline of each flight
+ * (the two-character designator its flight number starts with) is interned to a dense id as
+ * well, so query-time filters test an edge with array lookups. Incoming edges are indexed the
+ * same way ({@code inEdgeOffsets} into {@code inEdges}) for searches that run backwards from
+ * the destination.
+ */
 public class FlightGraph {
-    private Map<String, List<FlightEdge>> adjacencyList;
-    private Set<String> cities;
 
-    public FlightGraph() {
-        this.adjacencyList = new HashMap<>();
-        this.cities = new HashSet<>();
+    /** Number of decimal places kept in the fixed-point cost column (paise). */
+    public static final int COST_SCALE = 2;
+
+    /** Departure minute of a flight without a timetable entry. */
+    public static final int NO_DEPARTURE = -1;
+
+    /** Airline id of a flight without a usable flight number. */
+    public static final int NO_AIRLINE = -1;
+
+    private final String[] cityCodes;
+    private final Map<String, Integer> cityIds;
+    private final Set<String> cities;
+    private final int[] edgeOffsets;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+    private final long[] edgeCosts;
+    private final int[] edgeDurations;
+    private final int[] edgeDepartures;
+    private final int[] edgeAirlines;
+    private final String[] airlineCodes;
+    private final Map<String, Integer> airlineIds;
+    private final FlightEdge[] edges;
+    private final Map<UUID, Integer> edgeIndexByFlight;
+    private final int[] inEdgeOffsets;
+    private final int[] inEdges;
+
+    private FlightGraph(String[] cityCodes, Map<String, Integer> cityIds, int[] edgeOffsets,
+                        int[] edgeSources, int[] edgeTargets, long[] edgeCosts,
+                        int[] edgeDurations, int[] edgeDepartures, int[] edgeAirlines,
+                        String[] airlineCodes, Map<String, Integer> airlineIds, FlightEdge[] edges) {
+        this.cityCodes = cityCodes;
+        this.cityIds = cityIds;
+        this.cities = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(cityCodes)));
+        this.edgeOffsets = edgeOffsets;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.edgeCosts = edgeCosts;
+        this.edgeDurations = edgeDurations;
+        this.edgeDepartures = edgeDepartures;
+        this.edgeAirlines = edgeAirlines;
+        this.airlineCodes = airlineCodes;
+        this.airlineIds = airlineIds;
+        this.edges = edges;
+        this.edgeIndexByFlight = new HashMap<>(edges.length * 2);
+        for (int e = 0; e < edges.length; e++) {
+            edgeIndexByFlight.put(edges[e].getFlightId(), e);
+        }
+
+        // Counting sort of the edge indices by target airport
+        this.inEdgeOffsets = new int[cityCodes.length + 1];
+        for (int target : edgeTargets) {
+            inEdgeOffsets[target + 1]++;
+        }
+        for (int i = 0; i < cityCodes.length; i++) {
+            inEdgeOffsets[i + 1] += inEdgeOffsets[i];
+        }
+        this.inEdges = new int[edges.length];
+        int[] cursor = Arrays.copyOf(inEdgeOffsets, cityCodes.length);
+        for (int e = 0; e < edges.length; e++) {
+            inEdges[cursor[edgeTargets[e]]++] = e;
+        }
     }
 
-    public void addEdge(FlightEdge edge) {
-        adjacencyList.computeIfAbsent(edge.getSource(), k -> new ArrayList<>()).add(edge);
-        cities.add(edge.getSource());
-        cities.add(edge.getDestination());
+    public static Builder builder() {
+        return new Builder();
     }
 
     public List<FlightEdge> getEdges(String city) {
-        return adjacencyList.getOrDefault(city, new ArrayList<>());
+        int id = getCityId(city);
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(
+                Arrays.asList(edges).subList(edgeOffsets[id], edgeOffsets[id + 1]));
     }
 
     public Set<String> getCities() {
@@ -27,6 +101,267 @@ public class FlightGraph {
     }
 
     public boolean hasCity(String city) {
-        return cities.contains(city);
+        return cityIds.containsKey(city);
+    }
+
+    // Primitive accessors used by the search algorithms
+
+    public int getCityCount() {
+        return cityCodes.length;
+    }
+
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * @return dense id of the airport, or -1 if it is not part of the network
+     */
+    public int getCityId(String city) {
+        Integer id = cityIds.get(city);
+        return id != null ? id : -1;
+    }
+
+    public String getCityCode(int cityId) {
+        return cityCodes[cityId];
+    }
+
+    /** First outgoing edge index of {@code cityId}. */
+    public int getEdgeStart(int cityId) {
+        return edgeOffsets[cityId];
+    }
+
+    /** One past the last outgoing edge index of {@code cityId}. */
+    public int getEdgeEnd(int cityId) {
+        return edgeOffsets[cityId + 1];
+    }
+
+    /** First slot of {@code cityId}'s incoming edges, see {@link #getInEdge(int)}. */
+    public int getInEdgeStart(int cityId) {
+        return inEdgeOffsets[cityId];
+    }
+
+    /** One past the last slot of {@code cityId}'s incoming edges. */
+    public int getInEdgeEnd(int cityId) {
+        return inEdgeOffsets[cityId + 1];
+    }
+
+    /** Edge index stored in an incoming-edge slot. */
+    public int getInEdge(int slot) {
+        return inEdges[slot];
+    }
+
+    public int getEdgeSource(int edge) {
+        return edgeSources[edge];
+    }
+
+    public int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public long getEdgeCost(int edge) {
+        return edgeCosts[edge];
+    }
+
+    public int getEdgeDuration(int edge) {
+        return edgeDurations[edge];
+    }
+
+    /**
+     * @return daily departure in minutes after midnight, or {@link #NO_DEPARTURE}
+     */
+    public int getEdgeDeparture(int edge) {
+        return edgeDepartures[edge];
+    }
+
+    /**
+     * @return airline id of the flight, or {@link #NO_AIRLINE}
+     */
+    public int getEdgeAirline(int edge) {
+        return edgeAirlines[edge];
+    }
+
+    public int getAirlineCount() {
+        return airlineCodes.length;
+    }
+
+    /**
+     * @return dense id of an airline designator, or {@link #NO_AIRLINE} if no flight has it
+     */
+    public int getAirlineId(String airline) {
+        Integer id = airlineIds.get(airline);
+        return id != null ? id : NO_AIRLINE;
+    }
+
+    public String getAirlineCode(int airlineId) {
+        return airlineCodes[airlineId];
+    }
+
+    /**
+     * @return the airline designator a flight number starts with (6E201 → 6E), or null
+     */
+    public static String airlineOf(String flightNumber) {
+        if (flightNumber == null || flightNumber.length() < 3) {
+            return null;
+        }
+        return flightNumber.substring(0, 2).toUpperCase(Locale.ROOT);
+    }
+
+    public long getEdgeWeight(int edge, boolean byCost) {
+        return byCost ? edgeCosts[edge] : edgeDurations[edge];
+    }
+
+    public FlightEdge getEdge(int edge) {
+        return edges[edge];
+    }
+
+    /**
+     * @return edge index of the flight, or -1 if it is not part of the network
+     */
+    public int getEdgeIndex(UUID flightId) {
+        Integer edge = edgeIndexByFlight.get(flightId);
+        return edge != null ? edge : -1;
+    }
+
+    /**
+     * Builds a copy of this graph without the given flight. The original stays untouched.
+     * @return this graph if the flight is not part of it
+     */
+    public FlightGraph withoutFlight(UUID flightId) {
+        int removed = getEdgeIndex(flightId);
+        if (removed < 0) {
+            return this;
+        }
+
+        Builder builder = builder();
+        for (int e = 0; e < edges.length; e++) {
+            if (e != removed) {
+                builder.addEdge(edges[e]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds a copy of this graph with the given flights removed and the given edges added or
+     * replacing the edge of the same flight. The original stays untouched.
+     * @return this graph if neither removes nor adds anything
+     */
+    public FlightGraph withChanges(Collection<UUID> removedFlights, Collection<FlightEdge> upsertedEdges) {
+        Set<UUID> dropped = new HashSet<>();
+        for (UUID flightId : removedFlights) {
+            if (edgeIndexByFlight.containsKey(flightId)) {
+                dropped.add(flightId);
+            }
+        }
+        if (dropped.isEmpty() && upsertedEdges.isEmpty()) {
+            return this;
+        }
+        for (FlightEdge edge : upsertedEdges) {
+            dropped.add(edge.getFlightId());
+        }
+
+        Builder builder = builder();
+        for (FlightEdge edge : edges) {
+            if (!dropped.contains(edge.getFlightId())) {
+                builder.addEdge(edge);
+            }
+        }
+        upsertedEdges.forEach(builder::addEdge);
+        return builder.build();
+    }
+
+    public static long toFixedCost(BigDecimal cost) {
+        return cost.setScale(COST_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromFixedCost(long fixedCost) {
+        return BigDecimal.valueOf(fixedCost, COST_SCALE);
+    }
+
+    /**
+     * Collects edges and compiles them into an immutable {@link FlightGraph}.
+     */
+    public static class Builder {
+        private final List<FlightEdge> edges = new ArrayList<>();
+
+        private Builder() {}
+
+        public Builder addEdge(FlightEdge edge) {
+            Objects.requireNonNull(edge.getSource(), "source");
+            Objects.requireNonNull(edge.getDestination(), "destination");
+            Objects.requireNonNull(edge.getCost(), "cost");
+            Objects.requireNonNull(edge.getDuration(), "duration");
+            edges.add(edge);
+            return this;
+        }
+
+        public int size() {
+            return edges.size();
+        }
+
+        public FlightGraph build() {
+            TreeSet<String> sortedCities = new TreeSet<>();
+            for (FlightEdge edge : edges) {
+                sortedCities.add(edge.getSource());
+                sortedCities.add(edge.getDestination());
+            }
+
+            String[] cityCodes = sortedCities.toArray(new String[0]);
+            Map<String, Integer> cityIds = new HashMap<>(cityCodes.length * 2);
+            for (int i = 0; i < cityCodes.length; i++) {
+                cityIds.put(cityCodes[i], i);
+            }
+
+            // Counting sort by source id keeps the insertion order of each airport's edges
+            int edgeCount = edges.size();
+            int[] edgeOffsets = new int[cityCodes.length + 1];
+            for (FlightEdge edge : edges) {
+                edgeOffsets[cityIds.get(edge.getSource()) + 1]++;
+            }
+            for (int i = 0; i < cityCodes.length; i++) {
+                edgeOffsets[i + 1] += edgeOffsets[i];
+            }
+
+            int[] cursor = Arrays.copyOf(edgeOffsets, cityCodes.length);
+            int[] edgeSources = new int[edgeCount];
+            int[] edgeTargets = new int[edgeCount];
+            long[] edgeCosts = new long[edgeCount];
+            int[] edgeDurations = new int[edgeCount];
+            int[] edgeDepartures = new int[edgeCount];
+            int[] edgeAirlines = new int[edgeCount];
+            FlightEdge[] sortedEdges = new FlightEdge[edgeCount];
+
+            TreeSet<String> sortedAirlines = new TreeSet<>();
+            for (FlightEdge edge : edges) {
+                String airline = airlineOf(edge.getFlightNumber());
+                if (airline != null) {
+                    sortedAirlines.add(airline);
+                }
+            }
+            String[] airlineCodes = sortedAirlines.toArray(new String[0]);
+            Map<String, Integer> airlineIds = new HashMap<>(airlineCodes.length * 2);
+            for (int i = 0; i < airlineCodes.length; i++) {
+                airlineIds.put(airlineCodes[i], i);
+            }
+
+            for (FlightEdge edge : edges) {
+                int source = cityIds.get(edge.getSource());
+                int slot = cursor[source]++;
+                edgeSources[slot] = source;
+                edgeTargets[slot] = cityIds.get(edge.getDestination());
+                edgeCosts[slot] = toFixedCost(edge.getCost());
+                edgeDurations[slot] = edge.getDuration();
+                edgeDepartures[slot] = edge.getDepartureTime() != null
+                        ? edge.getDepartureTime().getHour() * 60 + edge.getDepartureTime().getMinute()
+                        : NO_DEPARTURE;
+                String airline = airlineOf(edge.getFlightNumber());
+                edgeAirlines[slot] = airline != null ? airlineIds.get(airline) : NO_AIRLINE;
+                sortedEdges[slot] = edge;
+            }
+
+            return new FlightGraph(cityCodes, cityIds, edgeOffsets, edgeSources, edgeTargets,
+                    edgeCosts, edgeDurations, edgeDepartures, edgeAirlines, airlineCodes, airlineIds, sortedEdges);
+        }
     }
-}
\ No newline at end of file
+}
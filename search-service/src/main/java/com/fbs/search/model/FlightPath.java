@@ -18,6 +18,15 @@ public class FlightPath {
                 .sum();
     }
 
+    /**
+     * Creates a path whose totals were already accumulated by the caller.
+     */
+    public FlightPath(List<FlightEdge> flights, BigDecimal totalCost, Integer totalDuration) {
+        this.flights = flights;
+        this.totalCost = totalCost;
+        this.totalDuration = totalDuration;
+    }
+
     public List<FlightEdge> getFlights() {
         return flights;
     }
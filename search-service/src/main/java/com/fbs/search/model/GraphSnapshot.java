@@ -0,0 +1,14 @@
+package com.fbs.search.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A published version of the flight network. The graph is immutable, so a search that read a
+ * snapshot finishes on it even if a newer version is swapped in meanwhile.
+ *
+ * @param version  increases by one with every published graph (rebuild or incremental update)
+ * @param graph    the compiled network
+ * @param builtAt  when this version was published
+ */
+public record GraphSnapshot(long version, FlightGraph graph, LocalDateTime builtAt) {
+}
@@ -0,0 +1,12 @@
+package com.fbs.search.model;
+
+/**
+ * A directed city pair, e.g. AMD to BLR.
+ */
+public record RouteKey(String source, String destination) {
+
+    @Override
+    public String toString() {
+        return source + ":" + destination;
+    }
+}
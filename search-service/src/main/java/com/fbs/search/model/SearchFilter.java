@@ -0,0 +1,51 @@
+package com.fbs.search.model;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.Set;
+
+/**
+ * Query-time restrictions on a search. Airlines, excluded airports and the departure window of
+ * the first leg restrict single flights and are tested against the graph's per-edge columns;
+ * the price and duration caps apply to whole itineraries. A window whose start is after its
+ * end runs past midnight.
+ *
+ * @param airlines         airline designators a flight must belong to, or empty for any
+ * @param excludedAirports airports an itinerary may not touch
+ */
+public record SearchFilter(Set<String> airlines, Set<String> excludedAirports, BigDecimal maxPrice,
+                           Integer maxDuration, LocalTime departFrom, LocalTime departTo) {
+
+    public static final SearchFilter NONE = new SearchFilter(Set.of(), Set.of(), null, null, null, null);
+
+    public SearchFilter {
+        airlines = airlines != null ? Set.copyOf(airlines) : Set.of();
+        excludedAirports = excludedAirports != null ? Set.copyOf(excludedAirports) : Set.of();
+    }
+
+    public boolean isEmpty() {
+        return !restrictsFlights() && !restrictsTotals();
+    }
+
+    public boolean restrictsFlights() {
+        return !airlines.isEmpty() || !excludedAirports.isEmpty() || departFrom != null || departTo != null;
+    }
+
+    public boolean restrictsTotals() {
+        return maxPrice != null || maxDuration != null;
+    }
+
+    public boolean allowsTotals(BigDecimal cost, Integer duration) {
+        return (maxPrice == null || cost.compareTo(maxPrice) <= 0)
+                && (maxDuration == null || duration <= maxDuration);
+    }
+
+    /**
+     * @param minute departure in minutes after midnight
+     */
+    public boolean allowsDeparture(int minute) {
+        int from = departFrom != null ? departFrom.getHour() * 60 + departFrom.getMinute() : 0;
+        int to = departTo != null ? departTo.getHour() * 60 + departTo.getMinute() : 24 * 60 - 1;
+        return from <= to ? minute >= from && minute <= to : minute >= from || minute <= to;
+    }
+}
@@ -0,0 +1,63 @@
+package com.fbs.search.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for one bulk cache write run (a precompute or a refresh), shared by all batches of that run.
+ */
+public class CacheWriteStats {
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong keysWritten = new AtomicLong();
+    private final AtomicLong keysSkipped = new AtomicLong();
+    private final AtomicLong keysDeleted = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong redisNanos = new AtomicLong();
+
+    void recordBatch(int written, int skipped, int deleted, long bytes, long nanos) {
+        keysWritten.addAndGet(written);
+        keysSkipped.addAndGet(skipped);
+        keysDeleted.addAndGet(deleted);
+        bytesWritten.addAndGet(bytes);
+        batches.incrementAndGet();
+        redisNanos.addAndGet(nanos);
+    }
+
+    public long getKeysWritten() {
+        return keysWritten.get();
+    }
+
+    public long getKeysSkipped() {
+        return keysSkipped.get();
+    }
+
+    public long getKeysDeleted() {
+        return keysDeleted.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * @return keys per second over the wall-clock time since this run started
+     */
+    public long getKeysPerSecond() {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long total = keysWritten.get() + keysSkipped.get() + keysDeleted.get();
+        return elapsedMillis > 0 ? total * 1000 / elapsedMillis : total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("written=%d, skipped=%d, deleted=%d, batches=%d, bytes=%d, redisTime=%dms, throughput=%d keys/s",
+                keysWritten.get(), keysSkipped.get(), keysDeleted.get(), batches.get(), bytesWritten.get(),
+                TimeUnit.NANOSECONDS.toMillis(redisNanos.get()), getKeysPerSecond());
+    }
+}
@@ -0,0 +1,395 @@
+package com.fbs.search.service;
+
+import com.fbs.search.model.FlightGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contraction hierarchy over the duration weight of one graph.
+ *
+ * Parallel flights are collapsed to the fastest flight per airport pair. Airports are
+ * contracted in edge-difference order (lazily re-evaluated); contracting an airport adds a
+ * shortcut between two of its remaining neighbours unless a bounded witness search finds a
+ * path at least as fast around it. A query is a bidirectional search that only climbs to
+ * higher-ranked airports on both sides; the route is unpacked through the shortcuts' middle
+ * airports into a sequence of original airport pairs.
+ */
+class ContractionHierarchy {
+
+    /**
+     * An airport-level route: consecutive cities are joined by at least one flight, and
+     * {@code duration} is the sum of the fastest flight of every hop.
+     */
+    record Route(int[] cities, long duration) {}
+
+    private final int cityCount;
+    private final int[] rank;
+    // Arcs towards higher-ranked airports, by source (forward search)...
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final long[] upWeights;
+    // ...and by target (backward search walks them from target to source)
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final long[] downWeights;
+    // Middle airport of every shortcut, keyed by source * cityCount + target
+    private final Map<Long, Integer> shortcutMiddles;
+
+    private final long buildMillis;
+    private volatile long benchmarkDijkstraNanos;
+    private volatile long benchmarkHierarchyNanos;
+    private final AtomicLong directAnswers = new AtomicLong();
+    private final AtomicLong expandedAnswers = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    private ContractionHierarchy(int cityCount, int[] rank, int[][] upArcTargets, long[][] upArcWeights,
+                                 int[][] downArcSources, long[][] downArcWeights,
+                                 Map<Long, Integer> shortcutMiddles, long buildMillis) {
+        this.cityCount = cityCount;
+        this.rank = rank;
+        this.shortcutMiddles = shortcutMiddles;
+        this.buildMillis = buildMillis;
+
+        this.upOffsets = new int[cityCount + 1];
+        this.downOffsets = new int[cityCount + 1];
+        for (int city = 0; city < cityCount; city++) {
+            upOffsets[city + 1] = upOffsets[city] + upArcTargets[city].length;
+            downOffsets[city + 1] = downOffsets[city] + downArcSources[city].length;
+        }
+        this.upTargets = new int[upOffsets[cityCount]];
+        this.upWeights = new long[upOffsets[cityCount]];
+        this.downSources = new int[downOffsets[cityCount]];
+        this.downWeights = new long[downOffsets[cityCount]];
+        for (int city = 0; city < cityCount; city++) {
+            System.arraycopy(upArcTargets[city], 0, upTargets, upOffsets[city], upArcTargets[city].length);
+            System.arraycopy(upArcWeights[city], 0, upWeights, upOffsets[city], upArcWeights[city].length);
+            System.arraycopy(downArcSources[city], 0, downSources, downOffsets[city], downArcSources[city].length);
+            System.arraycopy(downArcWeights[city], 0, downWeights, downOffsets[city], downArcWeights[city].length);
+        }
+    }
+
+    static ContractionHierarchy build(FlightGraph graph, int witnessSettleLimit) {
+        long start = System.nanoTime();
+        int cityCount = graph.getCityCount();
+
+        // Remaining (not yet contracted) arcs, fastest flight per airport pair
+        List<Map<Integer, Long>> out = new ArrayList<>(cityCount);
+        List<Map<Integer, Long>> in = new ArrayList<>(cityCount);
+        for (int city = 0; city < cityCount; city++) {
+            out.add(new HashMap<>());
+            in.add(new HashMap<>());
+        }
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            int source = graph.getEdgeSource(e);
+            int target = graph.getEdgeTarget(e);
+            if (source != target) {
+                long duration = graph.getEdgeDuration(e);
+                out.get(source).merge(target, duration, Math::min);
+                in.get(target).merge(source, duration, Math::min);
+            }
+        }
+
+        Contractor contractor = new Contractor(cityCount, out, in, Math.max(1, witnessSettleLimit));
+        IndexedMinHeap queue = new IndexedMinHeap();
+        queue.ensureCapacity(cityCount);
+        for (int city = 0; city < cityCount; city++) {
+            queue.insertOrDecrease(city, contractor.priority(city));
+        }
+
+        int[] rank = new int[cityCount];
+        int[][] upArcTargets = new int[cityCount][];
+        long[][] upArcWeights = new long[cityCount][];
+        int[][] downArcSources = new int[cityCount][];
+        long[][] downArcWeights = new long[cityCount][];
+        int nextRank = 0;
+        while (!queue.isEmpty()) {
+            int city = queue.poll();
+            // Lazy update: neighbours' contractions may have made this airport more expensive
+            long priority = contractor.priority(city);
+            if (!queue.isEmpty() && priority > queue.peekKey()) {
+                queue.insertOrDecrease(city, priority);
+                continue;
+            }
+
+            rank[city] = nextRank++;
+            upArcTargets[city] = keys(out.get(city));
+            upArcWeights[city] = values(out.get(city), upArcTargets[city]);
+            downArcSources[city] = keys(in.get(city));
+            downArcWeights[city] = values(in.get(city), downArcSources[city]);
+            contractor.contract(city);
+        }
+
+        return new ContractionHierarchy(cityCount, rank, upArcTargets, upArcWeights, downArcSources,
+                downArcWeights, contractor.shortcutMiddles, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Upward bidirectional search between two airports, ignoring bans.
+     * @return the fastest airport-level route, or null if the target is unreachable
+     */
+    Route route(SearchContext forward, int source, int target) {
+        if (source == target) {
+            return new Route(new int[] {source}, 0L);
+        }
+        SearchContext backward = forward.reverse();
+        forward.prepare(cityCount);
+        backward.prepare(cityCount);
+        forward.reach(source, 0L, SearchContext.NO_EDGE);
+        forward.heap.insertOrDecrease(source, 0L);
+        backward.reach(target, 0L, SearchContext.NO_EDGE);
+        backward.heap.insertOrDecrease(target, 0L);
+
+        long best = Long.MAX_VALUE;
+        int meeting = -1;
+        while (true) {
+            boolean forwardOpen = !forward.heap.isEmpty() && forward.heap.peekKey() < best;
+            boolean backwardOpen = !backward.heap.isEmpty() && backward.heap.peekKey() < best;
+            if (!forwardOpen && !backwardOpen) {
+                break;
+            }
+            boolean expandForward = forwardOpen && (!backwardOpen || forward.heap.peekKey() <= backward.heap.peekKey());
+            SearchContext side = expandForward ? forward : backward;
+            SearchContext other = expandForward ? backward : forward;
+
+            int current = side.heap.poll();
+            side.settle(current);
+            long distance = side.distance(current);
+            long otherDistance = other.distance(current);
+            if (otherDistance != Long.MAX_VALUE && distance + otherDistance < best) {
+                best = distance + otherDistance;
+                meeting = current;
+            }
+
+            int startArc = expandForward ? upOffsets[current] : downOffsets[current];
+            int endArc = expandForward ? upOffsets[current + 1] : downOffsets[current + 1];
+            for (int arc = startArc; arc < endArc; arc++) {
+                int neighbor = expandForward ? upTargets[arc] : downSources[arc];
+                if (side.isSettled(neighbor)) continue;
+                long newDistance = distance + (expandForward ? upWeights[arc] : downWeights[arc]);
+                if (newDistance < side.distance(neighbor)) {
+                    side.reach(neighbor, newDistance, current);
+                    side.heap.insertOrDecrease(neighbor, newDistance);
+                }
+            }
+        }
+
+        if (meeting < 0) {
+            return null;
+        }
+
+        // The context's predecessor slot holds the previous airport on each side
+        List<Integer> upward = new ArrayList<>();
+        for (int city = meeting; city != SearchContext.NO_EDGE; city = forward.predecessorEdge(city)) {
+            upward.add(city);
+        }
+        List<Integer> hierarchyPath = new ArrayList<>();
+        for (int i = upward.size() - 1; i >= 0; i--) {
+            hierarchyPath.add(upward.get(i));
+        }
+        for (int city = backward.predecessorEdge(meeting); city != SearchContext.NO_EDGE; city = backward.predecessorEdge(city)) {
+            hierarchyPath.add(city);
+        }
+
+        List<Integer> cities = new ArrayList<>();
+        cities.add(source);
+        for (int i = 0; i + 1 < hierarchyPath.size(); i++) {
+            unpack(hierarchyPath.get(i), hierarchyPath.get(i + 1), cities);
+        }
+        return new Route(cities.stream().mapToInt(Integer::intValue).toArray(), best);
+    }
+
+    private void unpack(int from, int to, List<Integer> cities) {
+        Integer middle = shortcutMiddles.get((long) from * cityCount + to);
+        if (middle == null) {
+            cities.add(to);
+            return;
+        }
+        unpack(from, middle, cities);
+        unpack(middle, to, cities);
+    }
+
+    int getRank(int city) {
+        return rank[city];
+    }
+
+    int getShortcutCount() {
+        return shortcutMiddles.size();
+    }
+
+    /**
+     * @param dijkstraNanos  mean time of a plain Dijkstra query on the benchmark pairs
+     * @param hierarchyNanos mean time of a hierarchy query on the same pairs
+     */
+    void recordBenchmark(long dijkstraNanos, long hierarchyNanos) {
+        this.benchmarkDijkstraNanos = dijkstraNanos;
+        this.benchmarkHierarchyNanos = hierarchyNanos;
+    }
+
+    void recordAnswer(boolean direct) {
+        (direct ? directAnswers : expandedAnswers).incrementAndGet();
+    }
+
+    void recordFallback() {
+        fallbacks.incrementAndGet();
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cities", cityCount);
+        result.put("arcs", upTargets.length + downSources.length);
+        result.put("shortcuts", getShortcutCount());
+        result.put("preprocessingMs", buildMillis);
+        result.put("benchmarkDijkstraMicros", benchmarkDijkstraNanos / 1000.0);
+        result.put("benchmarkHierarchyMicros", benchmarkHierarchyNanos / 1000.0);
+        result.put("benchmarkSpeedup", benchmarkHierarchyNanos > 0
+                ? Math.round(benchmarkDijkstraNanos * 10.0 / benchmarkHierarchyNanos) / 10.0 : null);
+        result.put("queries", directAnswers.get() + expandedAnswers.get() + fallbacks.get());
+        result.put("directAnswers", directAnswers.get());
+        result.put("expandedAnswers", expandedAnswers.get());
+        result.put("dijkstraFallbacks", fallbacks.get());
+        return result;
+    }
+
+    private static int[] keys(Map<Integer, Long> arcs) {
+        return arcs.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long[] values(Map<Integer, Long> arcs, int[] keys) {
+        long[] values = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = arcs.get(keys[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Mutable state of the contraction: the remaining arcs, shortcut bookkeeping and the
+     * scratch space of the witness searches.
+     */
+    private static final class Contractor {
+        private final int cityCount;
+        private final List<Map<Integer, Long>> out;
+        private final List<Map<Integer, Long>> in;
+        private final int witnessSettleLimit;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+        private final Map<Long, Integer> shortcutMiddles = new HashMap<>();
+
+        private final IndexedMinHeap heap = new IndexedMinHeap();
+        private final long[] distances;
+        private final int[] stamps;
+        private int stamp;
+
+        Contractor(int cityCount, List<Map<Integer, Long>> out, List<Map<Integer, Long>> in, int witnessSettleLimit) {
+            this.cityCount = cityCount;
+            this.out = out;
+            this.in = in;
+            this.witnessSettleLimit = witnessSettleLimit;
+            this.contracted = new boolean[cityCount];
+            this.contractedNeighbors = new int[cityCount];
+            this.distances = new long[cityCount];
+            this.stamps = new int[cityCount];
+            heap.ensureCapacity(cityCount);
+        }
+
+        /** Edge difference plus the number of already contracted neighbours (spreads contraction evenly). */
+        long priority(int city) {
+            return shortcuts(city, false) - out.get(city).size() - in.get(city).size() + contractedNeighbors[city];
+        }
+
+        void contract(int city) {
+            shortcuts(city, true);
+            for (int neighbor : out.get(city).keySet()) {
+                in.get(neighbor).remove(city);
+                contractedNeighbors[neighbor]++;
+            }
+            for (int neighbor : in.get(city).keySet()) {
+                out.get(neighbor).remove(city);
+                contractedNeighbors[neighbor]++;
+            }
+            contracted[city] = true;
+        }
+
+        /**
+         * Counts (and with {@code apply}, adds) the shortcuts needed to contract {@code city}.
+         */
+        private int shortcuts(int city, boolean apply) {
+            Map<Integer, Long> outgoing = out.get(city);
+            int shortcuts = 0;
+            for (Map.Entry<Integer, Long> incoming : in.get(city).entrySet()) {
+                int source = incoming.getKey();
+                long toCity = incoming.getValue();
+                long limit = 0L;
+                for (Map.Entry<Integer, Long> arc : outgoing.entrySet()) {
+                    if (arc.getKey() != source) {
+                        limit = Math.max(limit, toCity + arc.getValue());
+                    }
+                }
+                if (limit == 0L) {
+                    continue;
+                }
+
+                witnessSearch(source, city, limit);
+                for (Map.Entry<Integer, Long> arc : outgoing.entrySet()) {
+                    int target = arc.getKey();
+                    long viaCity = toCity + arc.getValue();
+                    if (target == source || witnessDistance(target) <= viaCity) {
+                        continue;
+                    }
+                    shortcuts++;
+                    if (apply) {
+                        Long existing = out.get(source).get(target);
+                        if (existing == null || viaCity < existing) {
+                            out.get(source).put(target, viaCity);
+                            in.get(target).put(source, viaCity);
+                            shortcutMiddles.put((long) source * cityCount + target, city);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra from {@code source} over the remaining arcs avoiding {@code excluded}, stopped
+         * at {@code limit} or after the settle limit. Unsettled airports may keep a distance that
+         * is too high, which only costs an unnecessary shortcut.
+         */
+        private void witnessSearch(int source, int excluded, long limit) {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+            heap.clear();
+            distances[source] = 0L;
+            stamps[source] = stamp;
+            heap.insertOrDecrease(source, 0L);
+
+            int settled = 0;
+            while (!heap.isEmpty() && heap.peekKey() <= limit && settled++ < witnessSettleLimit) {
+                int current = heap.poll();
+                long distance = distances[current];
+                for (Map.Entry<Integer, Long> arc : out.get(current).entrySet()) {
+                    int neighbor = arc.getKey();
+                    if (neighbor == excluded || contracted[neighbor]) continue;
+                    long newDistance = distance + arc.getValue();
+                    if (newDistance < witnessDistance(neighbor)) {
+                        distances[neighbor] = newDistance;
+                        stamps[neighbor] = stamp;
+                        heap.insertOrDecrease(neighbor, newDistance);
+                    }
+                }
+            }
+        }
+
+        private long witnessDistance(int city) {
+            return stamps[city] == stamp ? distances[city] : Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.fbs.search.service;
+
+import com.fbs.search.model.FlightGraph;
+import com.fbs.search.model.SearchFilter;
+
+import java.util.BitSet;
+
+/**
+ * The flight-level part of a {@link SearchFilter} compiled against one graph and origin, so
+ * searches test an edge with a few array and bitmask lookups instead of strings: allowed
+ * airlines and excluded airports become bit sets over the graph's dense ids, and the departure
+ * window is checked against the departure column for edges leaving the origin (only the first
+ * leg of a loop-free path does). Flights without a departure time fail a window.
+ */
+final class EdgeFilter {
+
+    private final FlightGraph graph;
+    private final SearchFilter filter;
+    private final BitSet airlines;
+    private final BitSet excludedCities;
+    private final int originId;
+    private final boolean window;
+
+    private EdgeFilter(FlightGraph graph, SearchFilter filter, BitSet airlines, BitSet excludedCities, int originId) {
+        this.graph = graph;
+        this.filter = filter;
+        this.airlines = airlines;
+        this.excludedCities = excludedCities;
+        this.originId = originId;
+        this.window = filter.departFrom() != null || filter.departTo() != null;
+    }
+
+    /**
+     * @return the compiled filter, or null if the filter does not restrict single flights
+     */
+    static EdgeFilter compile(FlightGraph graph, SearchFilter filter, int originId) {
+        if (filter == null || !filter.restrictsFlights()) {
+            return null;
+        }
+        BitSet airlines = null;
+        if (!filter.airlines().isEmpty()) {
+            airlines = new BitSet(graph.getAirlineCount());
+            for (String airline : filter.airlines()) {
+                int id = graph.getAirlineId(airline);
+                if (id != FlightGraph.NO_AIRLINE) {
+                    airlines.set(id);
+                }
+            }
+        }
+        BitSet excludedCities = new BitSet(graph.getCityCount());
+        for (String airport : filter.excludedAirports()) {
+            int id = graph.getCityId(airport);
+            if (id >= 0) {
+                excludedCities.set(id);
+            }
+        }
+        return new EdgeFilter(graph, filter, airlines, excludedCities, originId);
+    }
+
+    boolean allowsCity(int city) {
+        return !excludedCities.get(city);
+    }
+
+    boolean allowsEdge(int edge) {
+        if (airlines != null) {
+            int airline = graph.getEdgeAirline(edge);
+            if (airline == FlightGraph.NO_AIRLINE || !airlines.get(airline)) {
+                return false;
+            }
+        }
+        int source = graph.getEdgeSource(edge);
+        if (excludedCities.get(source) || excludedCities.get(graph.getEdgeTarget(edge))) {
+            return false;
+        }
+        if (window && source == originId) {
+            int departure = graph.getEdgeDeparture(edge);
+            return departure != FlightGraph.NO_DEPARTURE && filter.allowsDeparture(departure);
+        }
+        return true;
+    }
+}
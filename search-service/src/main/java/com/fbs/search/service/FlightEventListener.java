@@ -3,10 +3,9 @@ package com.fbs.search.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class FlightEventListener {
@@ -14,28 +13,45 @@ public class FlightEventListener {
     private static final Logger logger = LoggerFactory.getLogger(FlightEventListener.class);
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private GraphService graphService;
 
     @Autowired
-    private GraphService graphService;
+    private SearchNearCache nearCache;
+
+    @Autowired
+    private SeatAvailability seatAvailability;
 
     public void handleFlightEvent(String message) {
         try {
+            String[] parts = message.split(":");
+            if ("SEATS_CHANGED".equals(parts[0]) && parts.length >= 3) {
+                // Seat counts only filter results at read time; neither the graph nor the cache change
+                logger.debug("Received seats event: {}", message);
+                seatAvailability.update(UUID.fromString(parts[1]), Integer.parseInt(parts[2]));
+                return;
+            }
             logger.info("Received flight event: {}", message);
 
-            String[] parts = message.split(":");
             if (parts.length >= 3) {
                 String eventType = parts[0];
                 String source = parts[1];
                 String destination = parts[2];
 
-                if ("FLIGHT_CANCELLED".equals(eventType)) {
-                    logger.info("Processing flight cancellation for {}→{}", source, destination);
+                if ("FLIGHT_CANCELLED".equals(eventType) && parts.length >= 4) {
+                    UUID flightId = UUID.fromString(parts[3]);
+                    logger.info("Processing cancellation of flight {} ({}→{})", flightId, source, destination);
 
-                    // Flush cache keys for this route
-                    flushCacheForRoute(source, destination);
+                    // Drop the edge and recompute only the city pairs whose paths used it. The first
+                    // replica to handle the event consumes the shared index, so the near cache is
+                    // invalidated from its own entries rather than from the recomputed routes.
+                    graphService.applyFlightCancellation(flightId);
+                    nearCache.invalidateFlight(flightId);
+
+                } else if ("FLIGHT_CANCELLED".equals(eventType)) {
+                    // Legacy message without a flight id: fall back to a full rebuild. The rebuild
+                    // writes a fresh cache generation and switches readers to it when complete.
+                    logger.info("Processing flight cancellation for {}→{}", source, destination);
 
-                    // Reinitialize graphs
                     graphService.initializeGraphs();
                     logger.info("Graphs reinitialized after flight cancellation");
                 }
@@ -45,31 +61,4 @@ public class FlightEventListener {
             logger.error("Error processing flight event: {}", e.getMessage(), e);
         }
     }
-
-    private void flushCacheForRoute(String source, String destination) {
-        try {
-            // Find and delete all cache keys containing this source-destination pair
-            String pattern1 = source + ":" + destination + ":*";
-            String pattern2 = destination + ":" + source + ":*";
-
-            Set<String> keysToDelete1 = redisTemplate.keys(pattern1);
-            Set<String> keysToDelete2 = redisTemplate.keys(pattern2);
-
-            int deletedCount = 0;
-            if (keysToDelete1 != null && !keysToDelete1.isEmpty()) {
-                redisTemplate.delete(keysToDelete1);
-                deletedCount += keysToDelete1.size();
-            }
-
-            if (keysToDelete2 != null && !keysToDelete2.isEmpty()) {
-                redisTemplate.delete(keysToDelete2);
-                deletedCount += keysToDelete2.size();
-            }
-
-            logger.info("Flushed {} cache keys for route {}↔{}", deletedCount, source, destination);
-
-        } catch (Exception e) {
-            logger.error("Error flushing cache for route {}↔{}: {}", source, destination, e.getMessage());
-        }
-    }
-}
\ No newline at end of file
+}
@@ -1,195 +1,923 @@
 package com.fbs.search.service;
 
+import com.fbs.search.config.SearchConfig;
 import com.fbs.search.model.FlightEdge;
 import com.fbs.search.model.FlightGraph;
 import com.fbs.search.model.FlightPath;
+import com.fbs.search.model.SearchFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
+import java.time.LocalTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class FlightSearchAlgorithm {
 
-    public List<FlightPath> findKShortestPaths(FlightGraph graph, String source, String destination, 
+    private static final Logger logger = LoggerFactory.getLogger(FlightSearchAlgorithm.class);
+
+    // Scratch arrays are reused across the millions of searches run by the precompute
+    private final ThreadLocal<SearchContext> searchContexts = ThreadLocal.withInitial(SearchContext::new);
+
+    // Landmark distances per published graph; graphs are compared by identity and dropped with them
+    private final Map<FlightGraph, Landmarks> landmarkIndex = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Contraction hierarchies per published graph, held like the landmarks
+    private final Map<FlightGraph, ContractionHierarchy> hierarchyIndex = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Collapsed airport-pair graphs per published graph, held like the landmarks
+    private final Map<FlightGraph, RouteGraph> routeGraphIndex = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Connection-scan timetables per published graph, held like the landmarks
+    private final Map<FlightGraph, Timetable> timetableIndex = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Autowired
+    private SearchConfig searchConfig;
+
+    /**
+     * What a path is ranked by. Every weighting is additive over the legs, so the same searches
+     * and Yen's loop serve all of them.
+     */
+    public enum Weighting {
+        COST,
+        DURATION,
+        /** Fewest legs first, then cheapest: one leg outweighs any realistic fare in paise. */
+        STOPS;
+
+        static final long LEG_WEIGHT = 1L << 40;
+
+        long weight(FlightGraph graph, int edge) {
+            return switch (this) {
+                case COST -> graph.getEdgeCost(edge);
+                case DURATION -> graph.getEdgeDuration(edge);
+                case STOPS -> LEG_WEIGHT + graph.getEdgeCost(edge);
+            };
+        }
+
+        public static Weighting forCriteria(String criteria) {
+            return switch (criteria) {
+                case "FASTEST" -> DURATION;
+                case "FEWEST_STOPS" -> STOPS;
+                default -> COST;
+            };
+        }
+    }
+
+    public List<FlightPath> findKShortestPaths(FlightGraph graph, String source, String destination,
                                              int k, boolean sortByCost) {
-        if (k <= 0) return new ArrayList<>();
-        
-        List<FlightPath> kPaths = new ArrayList<>();
-        PriorityQueue<FlightPath> candidates = new PriorityQueue<>(
-            sortByCost ? Comparator.comparing(FlightPath::getTotalCost) : 
-                        Comparator.comparing(FlightPath::getTotalDuration)
-        );
-        
-        // Find shortest path first (Dijkstra-like)
-        FlightPath shortestPath = dijkstraShortestPath(graph, source, destination, sortByCost);
-        if (shortestPath != null) {
-            kPaths.add(shortestPath);
-            if (k == 1) return kPaths;
+        return findKShortestPaths(graph, source, destination, k, sortByCost, SearchConfig.Engine.DIJKSTRA);
+    }
+
+    public List<FlightPath> findKShortestPaths(FlightGraph graph, String source, String destination,
+                                             int k, boolean sortByCost, SearchConfig.Engine engine) {
+        return findKShortestPaths(graph, source, destination, k, sortByCost ? Weighting.COST : Weighting.DURATION,
+                engine, null);
+    }
+
+    public List<FlightPath> findKShortestPaths(FlightGraph graph, String source, String destination, int k,
+                                             Weighting weighting, SearchConfig.Engine engine, Integer maxStops) {
+        return findKShortestPaths(graph, source, destination, k, weighting, engine, maxStops, false);
+    }
+
+    public List<FlightPath> findPaths(FlightGraph graph, String source, String destination, int k, String criteria,
+                                      SearchConfig.Engine engine, Integer maxStops) {
+        return findPaths(graph, source, destination, k, criteria, engine, maxStops, null);
+    }
+
+    public List<FlightPath> findPaths(FlightGraph graph, String source, String destination, int k, String criteria,
+                                      SearchConfig.Engine engine, Integer maxStops, LocalTime departAfter) {
+        return findPaths(graph, source, destination, k, criteria, engine, maxStops, departAfter, false);
+    }
+
+    /**
+     * Paths for a search criteria (CHEAPEST, FASTEST, FEWEST_STOPS, PARETO or EARLIEST_ARRIVAL).
+     * PARETO returns the Pareto front instead of the top {@code k}.
+     * @param maxStops    largest number of intermediate stops, or null for no bound
+     * @param departAfter       earliest departure for EARLIEST_ARRIVAL, or null for midnight
+     * @param distinctRoutings  one path per airport sequence (with its best flights) instead of
+     *                          every flight combination; ignored by PARETO and EARLIEST_ARRIVAL
+     */
+    public List<FlightPath> findPaths(FlightGraph graph, String source, String destination, int k, String criteria,
+                                      SearchConfig.Engine engine, Integer maxStops, LocalTime departAfter,
+                                      boolean distinctRoutings) {
+        return findPaths(graph, source, destination, k, criteria, engine, maxStops, departAfter, distinctRoutings, null);
+    }
+
+    /**
+     * As above, restricted by a query-time filter. Flight-level restrictions are applied during
+     * traversal as standing bans; the price and duration caps are applied to an over-fetched
+     * result, which is exact when the cap is on the criteria's own weight (e.g. maxPrice with
+     * CHEAPEST) and best effort otherwise.
+     * @param filter restrictions, or null for none
+     */
+    public List<FlightPath> findPaths(FlightGraph graph, String source, String destination, int k, String criteria,
+                                      SearchConfig.Engine engine, Integer maxStops, LocalTime departAfter,
+                                      boolean distinctRoutings, SearchFilter filter) {
+        boolean capped = filter != null && filter.restrictsTotals();
+        int fetch = capped ? k * Math.max(1, searchConfig.getFilters().getOverFetchFactor()) : k;
+        List<FlightPath> paths;
+        if ("EARLIEST_ARRIVAL".equals(criteria)) {
+            paths = findEarliestArrivalPaths(graph, source, destination, fetch, maxStops, departAfter, filter);
+        } else if ("PARETO".equals(criteria)) {
+            paths = findParetoPaths(graph, source, destination, maxStops, filter);
         } else {
-            // No path found at all
-            return kPaths; // Return empty list
-        }
-        
-        // Yen's algorithm for k-1 additional paths
-        for (int i = 1; i < k; i++) {
-            if (i - 1 >= kPaths.size()) break; // Safety check
-            FlightPath lastPath = kPaths.get(i - 1);
-            
+            paths = findKShortestPaths(graph, source, destination, fetch, Weighting.forCriteria(criteria), engine,
+                    maxStops, distinctRoutings, filter);
+        }
+        if (!capped) {
+            return paths;
+        }
+        List<FlightPath> result = new ArrayList<>();
+        for (FlightPath path : paths) {
+            if (filter.allowsTotals(path.getTotalCost(), path.getTotalDuration())) {
+                result.add(path);
+            }
+        }
+        return "PARETO".equals(criteria) || result.size() <= k ? result : new ArrayList<>(result.subList(0, k));
+    }
+
+    /**
+     * Timetable-aware itineraries by connection scan: every leg departs at least the minimum
+     * connection time after the previous one lands, and itineraries may run into the next days
+     * of the daily schedule. The earliest arrival comes first, followed by options that leave
+     * later and arrive later. Durations are elapsed time from the first departure to the last
+     * arrival, layovers included.
+     * @param maxStops    largest number of intermediate stops, or null for no bound
+     * @param departAfter earliest departure on the search date, or null for midnight
+     */
+    public List<FlightPath> findEarliestArrivalPaths(FlightGraph graph, String source, String destination, int k,
+                                                     Integer maxStops, LocalTime departAfter) {
+        return findEarliestArrivalPaths(graph, source, destination, k, maxStops, departAfter, null);
+    }
+
+    private List<FlightPath> findEarliestArrivalPaths(FlightGraph graph, String source, String destination, int k,
+                                                      Integer maxStops, LocalTime departAfter, SearchFilter filter) {
+        int sourceId = graph.getCityId(source);
+        int destinationId = graph.getCityId(destination);
+        if (sourceId < 0 || destinationId < 0 || k <= 0) return new ArrayList<>();
+
+        int maxLegs = maxStops != null ? maxStops + 1 : Integer.MAX_VALUE;
+        int after = departAfter != null ? departAfter.getHour() * 60 + departAfter.getMinute() : 0;
+        List<Timetable.Journey> journeys = timetableFor(graph).options(graph, sourceId, destinationId, after, maxLegs, k,
+                EdgeFilter.compile(graph, filter, sourceId));
+
+        List<FlightPath> result = new ArrayList<>(journeys.size());
+        for (Timetable.Journey journey : journeys) {
+            FlightPath path = toFlightPath(graph, journey.edges());
+            result.add(new FlightPath(path.getFlights(), path.getTotalCost(), journey.elapsedMinutes()));
+        }
+        return result;
+    }
+
+    /**
+     * The Pareto front of (cost, duration): every path no other path beats on both, cheapest
+     * (and so slowest) first. Fronts larger than the configured size keep both ends and evenly
+     * spaced points in between, so any weighting of cost against duration still finds a near
+     * match.
+     * @param maxStops largest number of intermediate stops, or null for no bound
+     */
+    public List<FlightPath> findParetoPaths(FlightGraph graph, String source, String destination, Integer maxStops) {
+        return findParetoPaths(graph, source, destination, maxStops, null);
+    }
+
+    private List<FlightPath> findParetoPaths(FlightGraph graph, String source, String destination, Integer maxStops,
+                                             SearchFilter filter) {
+        int sourceId = graph.getCityId(source);
+        int destinationId = graph.getCityId(destination);
+        if (sourceId < 0 || destinationId < 0) return new ArrayList<>();
+
+        int maxLegs = maxStops != null ? maxStops + 1 : Integer.MAX_VALUE;
+        SearchConfig.Pareto config = searchConfig.getPareto();
+        ParetoSearch.Front front = ParetoSearch.front(graph, sourceId, destinationId, maxLegs,
+                config.getMaxLabelsPerCity(), EdgeFilter.compile(graph, filter, sourceId));
+        if (front.truncated()) {
+            logger.debug("Pareto search {}:{} hit the limit of {} labels per airport", source, destination,
+                         config.getMaxLabelsPerCity());
+        }
+
+        List<int[]> paths = front.paths();
+        int size = Math.max(2, config.getMaxFrontSize());
+        List<FlightPath> result = new ArrayList<>(Math.min(paths.size(), size));
+        if (paths.size() <= size) {
+            for (int[] path : paths) {
+                result.add(toFlightPath(graph, path));
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                result.add(toFlightPath(graph, paths.get((int) ((long) i * (paths.size() - 1) / (size - 1)))));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * K shortest loop-free paths. Yen's algorithm runs on the airport-pair graph, so it yields
+     * the K best routings; unless only distinct routings are asked for, the flights of those
+     * routings are then expanded into the K best concrete itineraries. A path through a routing
+     * outside the top K weighs at least as much as each of the top K's best itineraries, so the
+     * expansion is exact.
+     * @param distinctRoutings return each routing once, with its best flights
+     */
+    public List<FlightPath> findKShortestPaths(FlightGraph graph, String source, String destination, int k,
+                                             Weighting weighting, SearchConfig.Engine engine, Integer maxStops,
+                                             boolean distinctRoutings) {
+        return findKShortestPaths(graph, source, destination, k, weighting, engine, maxStops, distinctRoutings, null);
+    }
+
+    private List<FlightPath> findKShortestPaths(FlightGraph graph, String source, String destination, int k,
+                                              Weighting weighting, SearchConfig.Engine engine, Integer maxStops,
+                                              boolean distinctRoutings, SearchFilter filter) {
+        if (k <= 0) return new ArrayList<>();
+
+        int sourceId = graph.getCityId(source);
+        int destinationId = graph.getCityId(destination);
+        if (sourceId < 0 || destinationId < 0) return new ArrayList<>();
+
+        EdgeFilter edgeFilter = EdgeFilter.compile(graph, filter, sourceId);
+        if (edgeFilter != null) {
+            return findFilteredPaths(graph, sourceId, destinationId, k, weighting, engine, maxStops, distinctRoutings,
+                    edgeFilter);
+        }
+
+        RouteGraph routes = routeGraphFor(graph);
+        boolean byCost = weighting != Weighting.DURATION;
+        FlightGraph collapsed = routes.collapsed(graph, byCost);
+        List<Candidate> routings = kShortestRoutings(collapsed, sourceId, destinationId, k, weighting, engine, maxStops,
+                null);
+
+        if (distinctRoutings || !routes.isCollapsed()) {
+            List<FlightPath> result = new ArrayList<>(routings.size());
+            for (Candidate routing : routings) {
+                result.add(toFlightPath(collapsed, routing.edges));
+            }
+            return result;
+        }
+        return expandRoutings(graph, routes, byCost, weighting, routings, k);
+    }
+
+    /**
+     * Filtered searches run on the full graph: a collapsed route edge stands for its best
+     * flight, which the filter may reject while allowing a parallel one, and the landmarks and
+     * hierarchy are built for the collapsed graphs. ALT and CH therefore give way to the
+     * bidirectional search. Distinct routings keep the first path of each airport sequence.
+     */
+    private List<FlightPath> findFilteredPaths(FlightGraph graph, int sourceId, int destinationId, int k,
+                                               Weighting weighting, SearchConfig.Engine engine, Integer maxStops,
+                                               boolean distinctRoutings, EdgeFilter filter) {
+        if (engine == SearchConfig.Engine.ALT || engine == SearchConfig.Engine.CH) {
+            engine = SearchConfig.Engine.BIDIRECTIONAL;
+        }
+        List<Candidate> paths = kShortestRoutings(graph, sourceId, destinationId, k, weighting, engine, maxStops, filter);
+
+        List<FlightPath> result = new ArrayList<>(paths.size());
+        Set<List<Integer>> routings = new HashSet<>();
+        for (Candidate path : paths) {
+            if (distinctRoutings) {
+                List<Integer> airports = new ArrayList<>(path.edges.length);
+                for (int edge : path.edges) {
+                    airports.add(graph.getEdgeTarget(edge));
+                }
+                if (!routings.add(airports)) continue;
+            }
+            result.add(toFlightPath(graph, path.edges));
+        }
+        return result;
+    }
+
+    /**
+     * Yen's K shortest loop-free paths. The engine runs the first search and every spur search;
+     * all engines are exact, so the result does not depend on it. Hop-bounded searches
+     * ({@code maxStops}) and FEWEST_STOPS use the layered search regardless of the engine.
+     */
+    private List<Candidate> kShortestRoutings(FlightGraph graph, int sourceId, int destinationId, int k,
+                                              Weighting weighting, SearchConfig.Engine engine, Integer maxStops,
+                                              EdgeFilter filter) {
+        SearchContext context = searchContexts.get();
+        context.prepareBans(graph.getCityCount(), graph.getEdgeCount());
+        context.setFilter(filter);
+        int maxLegs = maxStops != null ? maxStops + 1 : Integer.MAX_VALUE;
+        boolean layered = maxStops != null || weighting == Weighting.STOPS;
+        boolean sortByCost = weighting == Weighting.COST;
+        if (engine == SearchConfig.Engine.CH && sortByCost) {
+            // The hierarchy is built on durations only
+            engine = SearchConfig.Engine.DIJKSTRA;
+        }
+        Landmarks landmarks = !layered && engine == SearchConfig.Engine.ALT ? landmarksFor(graph) : null;
+        ContractionHierarchy hierarchy = !layered && engine == SearchConfig.Engine.CH ? hierarchyFor(graph) : null;
+
+        List<Candidate> kPaths = new ArrayList<>();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        Set<Candidate> seen = new HashSet<>();
+
+        int[] firstPath = layered
+                ? layeredShortestPath(graph, context, sourceId, destinationId, maxLegs, weighting)
+                : shortestPath(graph, context, engine, landmarks, hierarchy, sourceId, destinationId, sortByCost);
+        if (firstPath == null) {
+            return kPaths; // No path found at all
+        }
+        Candidate shortestPath = new Candidate(firstPath, pathWeight(graph, firstPath, weighting));
+        kPaths.add(shortestPath);
+        seen.add(shortestPath);
+
+        // Yen's algorithm for k-1 additional paths. Spur searches run on the shared graph with
+        // the conflicting edges and root-path airports masked out instead of on a copy.
+        while (kPaths.size() < k) {
+            int[] lastPath = kPaths.get(kPaths.size() - 1).edges;
+            long rootWeight = 0L;
+
             // For each node in the previous k-shortest path except the last
-            for (int j = 0; j < lastPath.getFlights().size(); j++) {
-                String spurNode = (j == 0) ? source : lastPath.getFlights().get(j - 1).getDestination();
-                List<FlightEdge> rootPath = lastPath.getFlights().subList(0, j);
-                
-                // Create modified graph by removing conflicting edges
-                FlightGraph modifiedGraph = createModifiedGraph(graph, kPaths, rootPath, spurNode);
-                
-                // Find spur path from spurNode to destination
-                FlightPath spurPath = dijkstraShortestPath(modifiedGraph, spurNode, destination, sortByCost);
-                
+            for (int j = 0; j < lastPath.length && j < maxLegs; j++) {
+                int spurNode = (j == 0) ? sourceId : graph.getEdgeTarget(lastPath[j - 1]);
+                context.clearBans();
+
+                // Ban edges that would recreate an accepted path sharing this root
+                for (Candidate accepted : kPaths) {
+                    if (accepted.edges.length > j && sharesPrefix(accepted.edges, lastPath, j)) {
+                        context.banEdge(accepted.edges[j]);
+                    }
+                }
+
+                // Ban root-path airports so spur paths stay loop-free
+                for (int m = 0; m < j; m++) {
+                    context.banCity(graph.getEdgeSource(lastPath[m]));
+                }
+
+                int[] spurPath = layered
+                        ? layeredShortestPath(graph, context, spurNode, destinationId, maxLegs - j, weighting)
+                        : shortestPath(graph, context, engine, landmarks, hierarchy, spurNode, destinationId, sortByCost);
                 if (spurPath != null) {
                     // Combine root path + spur path
-                    List<FlightEdge> totalPath = new ArrayList<>(rootPath);
-                    totalPath.addAll(spurPath.getFlights());
-                    candidates.offer(new FlightPath(totalPath));
+                    int[] totalPath = Arrays.copyOf(lastPath, j + spurPath.length);
+                    System.arraycopy(spurPath, 0, totalPath, j, spurPath.length);
+
+                    Candidate candidate = new Candidate(totalPath, rootWeight + pathWeight(graph, spurPath, weighting));
+                    if (seen.add(candidate)) {
+                        candidates.offer(candidate);
+                    }
                 }
+
+                rootWeight += weighting.weight(graph, lastPath[j]);
             }
-            
+
             if (candidates.isEmpty()) break;
-            
-            FlightPath nextPath = candidates.poll();
-            if (!isDuplicate(kPaths, nextPath)) {
-                kPaths.add(nextPath);
-            } else {
-                i--; // Try again with next candidate
-            }
+            kPaths.add(candidates.poll());
         }
-        
         return kPaths;
     }
-    
-    private FlightPath dijkstraShortestPath(FlightGraph graph, String source, String destination, boolean sortByCost) {
-        Map<String, Double> distances = new HashMap<>();
-        Map<String, FlightPath> paths = new HashMap<>();
-        PriorityQueue<Node> pq = new PriorityQueue<>(Comparator.comparing(n -> n.distance));
-        Set<String> visited = new HashSet<>();
-        
-        // Initialize
-        for (String city : graph.getCities()) {
-            distances.put(city, Double.MAX_VALUE);
-        }
-        distances.put(source, 0.0);
-        pq.offer(new Node(source, 0.0));
-        paths.put(source, new FlightPath(new ArrayList<>()));
-        
-        while (!pq.isEmpty()) {
-            Node current = pq.poll();
-            if (visited.contains(current.city)) continue;
-            visited.add(current.city);
-            
-            if (current.city.equals(destination)) {
-                return paths.get(destination);
-            }
-            
-            for (FlightEdge edge : graph.getEdges(current.city)) {
-                String neighbor = edge.getDestination();
-                double edgeWeight = sortByCost ? edge.getCost().doubleValue() : edge.getDuration().doubleValue();
-                double newDistance = distances.get(current.city) + edgeWeight;
-                
-                if (newDistance < distances.get(neighbor)) {
-                    distances.put(neighbor, newDistance);
-                    
-                    // Build path
-                    List<FlightEdge> newPath = new ArrayList<>(paths.get(current.city).getFlights());
-                    newPath.add(edge);
-                    paths.put(neighbor, new FlightPath(newPath));
-                    
-                    pq.offer(new Node(neighbor, newDistance));
+
+    /**
+     * Lazily enumerates flight combinations of the routings, lightest first: each routing
+     * starts with its best flights, and taking a combination queues the ones that move a single
+     * leg at or after the last moved leg to its next flight, so every combination is queued once.
+     */
+    private List<FlightPath> expandRoutings(FlightGraph graph, RouteGraph routes, boolean byCost, Weighting weighting,
+                                            List<Candidate> routings, int k) {
+        PriorityQueue<Expansion> queue = new PriorityQueue<>();
+        for (int r = 0; r < routings.size(); r++) {
+            int[] edges = routings.get(r).edges;
+            int[][] flights = new int[edges.length][];
+            for (int leg = 0; leg < edges.length; leg++) {
+                flights[leg] = routes.alternatives(byCost, edges[leg]);
+            }
+            queue.add(new Expansion(r, flights, new int[edges.length], 0, routings.get(r).weight));
+        }
+
+        List<FlightPath> result = new ArrayList<>(k);
+        while (result.size() < k && !queue.isEmpty()) {
+            Expansion expansion = queue.poll();
+            int[] path = new int[expansion.choice.length];
+            for (int leg = 0; leg < path.length; leg++) {
+                path[leg] = expansion.flights[leg][expansion.choice[leg]];
+            }
+            result.add(toFlightPath(graph, path));
+
+            for (int leg = expansion.pivot; leg < path.length; leg++) {
+                int[] options = expansion.flights[leg];
+                int next = expansion.choice[leg] + 1;
+                if (next < options.length) {
+                    int[] choice = expansion.choice.clone();
+                    choice[leg] = next;
+                    long weight = expansion.weight - weighting.weight(graph, options[next - 1])
+                            + weighting.weight(graph, options[next]);
+                    queue.add(new Expansion(expansion.routing, expansion.flights, choice, leg, weight));
                 }
             }
         }
-        
-        return null; // No path found
-    }
-    
-    private FlightGraph createModifiedGraph(FlightGraph original, List<FlightPath> kPaths, 
-                                          List<FlightEdge> rootPath, String spurNode) {
-        FlightGraph modified = new FlightGraph();
-        
-        // Copy all edges
-        for (String city : original.getCities()) {
-            for (FlightEdge edge : original.getEdges(city)) {
-                modified.addEdge(edge);
-            }
-        }
-        
-        // Remove edges that would create duplicate paths
-        for (FlightPath path : kPaths) {
-            if (path.getFlights().size() > rootPath.size()) {
-                List<FlightEdge> pathEdges = path.getFlights();
-                boolean matchesRoot = true;
-                for (int i = 0; i < rootPath.size(); i++) {
-                    if (!pathEdges.get(i).equals(rootPath.get(i))) {
-                        matchesRoot = false;
-                        break;
-                    }
+        return result;
+    }
+
+    /**
+     * @return edge indices of a shortest path avoiding the context's bans, or null if there is none
+     */
+    private int[] shortestPath(FlightGraph graph, SearchContext context, SearchConfig.Engine engine, Landmarks landmarks,
+                               ContractionHierarchy hierarchy, int sourceId, int destinationId, boolean sortByCost) {
+        if (engine == SearchConfig.Engine.BIDIRECTIONAL) {
+            return bidirectionalShortestPath(graph, context, sourceId, destinationId, sortByCost);
+        }
+        if (hierarchy != null) {
+            return hierarchyShortestPath(graph, context, hierarchy, sourceId, destinationId);
+        }
+        return dijkstraShortestPath(graph, context, landmarks, sourceId, destinationId, sortByCost)
+                ? extractEdges(graph, context, destinationId) : null;
+    }
+
+    /**
+     * Runs Dijkstra from {@code sourceId}, skipping any edge or airport banned in the context.
+     * With landmarks it runs as A*: airports are queued by distance plus a consistent lower bound
+     * of the remaining distance, so settled distances stay exact while the search heads for the
+     * destination, and airports that provably cannot reach it are never queued.
+     * @return true if {@code destinationId} was settled; its path is then left in the context
+     */
+    private boolean dijkstraShortestPath(FlightGraph graph, SearchContext context, Landmarks landmarks,
+                                         int sourceId, int destinationId, boolean sortByCost) {
+        context.prepare(graph.getCityCount());
+        IndexedMinHeap heap = context.heap;
+
+        long sourceBound = landmarks != null ? landmarks.lowerBound(sourceId, destinationId, sortByCost) : 0L;
+        if (sourceBound == Landmarks.UNREACHABLE) {
+            return false;
+        }
+        context.reach(sourceId, 0L, SearchContext.NO_EDGE);
+        heap.insertOrDecrease(sourceId, sourceBound);
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            context.settle(current);
+
+            if (current == destinationId) {
+                return true;
+            }
+
+            long currentDistance = context.distance(current);
+            for (int e = graph.getEdgeStart(current); e < graph.getEdgeEnd(current); e++) {
+                int neighbor = graph.getEdgeTarget(e);
+                if (context.isSettled(neighbor) || context.isEdgeBanned(e) || context.isCityBanned(neighbor)) continue;
+
+                long newDistance = currentDistance + graph.getEdgeWeight(e, sortByCost);
+                if (newDistance < context.distance(neighbor)) {
+                    long bound = landmarks != null ? landmarks.lowerBound(neighbor, destinationId, sortByCost) : 0L;
+                    if (bound == Landmarks.UNREACHABLE) continue;
+                    context.reach(neighbor, newDistance, e);
+                    heap.insertOrDecrease(neighbor, newDistance + bound);
                 }
-                
-                if (matchesRoot && pathEdges.size() > rootPath.size()) {
-                    // Remove the edge that would continue this existing path
-                    FlightEdge toRemove = pathEdges.get(rootPath.size());
-                    removeEdgeFromGraph(modified, toRemove);
+            }
+        }
+
+        return false; // No path found
+    }
+
+    /**
+     * Runs Dijkstra forwards from the source and backwards from the destination over incoming
+     * edges, always expanding the side with the smaller frontier key, until the two frontier
+     * keys together reach the best meeting distance found so far. Bans are honoured on both sides.
+     * @return edge indices of a shortest path, or null if there is none
+     */
+    private int[] bidirectionalShortestPath(FlightGraph graph, SearchContext forward, int sourceId,
+                                            int destinationId, boolean sortByCost) {
+        if (sourceId == destinationId) {
+            return new int[0];
+        }
+        SearchContext backward = forward.reverse();
+        forward.prepare(graph.getCityCount());
+        backward.prepare(graph.getCityCount());
+
+        forward.reach(sourceId, 0L, SearchContext.NO_EDGE);
+        forward.heap.insertOrDecrease(sourceId, 0L);
+        backward.reach(destinationId, 0L, SearchContext.NO_EDGE);
+        backward.heap.insertOrDecrease(destinationId, 0L);
+
+        long best = Long.MAX_VALUE;
+        int meeting = -1;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            long forwardKey = forward.heap.peekKey();
+            long backwardKey = backward.heap.peekKey();
+            if (forwardKey + backwardKey >= best) {
+                break;
+            }
+
+            boolean expandForward = forwardKey <= backwardKey;
+            SearchContext side = expandForward ? forward : backward;
+            SearchContext other = expandForward ? backward : forward;
+            int current = side.heap.poll();
+            side.settle(current);
+
+            long currentDistance = side.distance(current);
+            int start = expandForward ? graph.getEdgeStart(current) : graph.getInEdgeStart(current);
+            int end = expandForward ? graph.getEdgeEnd(current) : graph.getInEdgeEnd(current);
+            for (int i = start; i < end; i++) {
+                int e = expandForward ? i : graph.getInEdge(i);
+                int neighbor = expandForward ? graph.getEdgeTarget(e) : graph.getEdgeSource(e);
+                if (side.isSettled(neighbor) || forward.isEdgeBanned(e) || forward.isCityBanned(neighbor)) continue;
+
+                long newDistance = currentDistance + graph.getEdgeWeight(e, sortByCost);
+                if (newDistance < side.distance(neighbor)) {
+                    side.reach(neighbor, newDistance, e);
+                    side.heap.insertOrDecrease(neighbor, newDistance);
+
+                    long otherDistance = other.distance(neighbor);
+                    if (otherDistance != Long.MAX_VALUE && newDistance + otherDistance < best) {
+                        best = newDistance + otherDistance;
+                        meeting = neighbor;
+                    }
                 }
             }
         }
-        
-        return modified;
+
+        if (meeting < 0) {
+            return null;
+        }
+
+        // Source to the meeting airport from the forward tree, then on to the destination from the backward tree
+        int[] head = extractEdges(graph, forward, meeting);
+        int tail = 0;
+        for (int city = meeting; backward.predecessorEdge(city) != SearchContext.NO_EDGE;
+             city = graph.getEdgeTarget(backward.predecessorEdge(city))) {
+            tail++;
+        }
+        int[] edges = Arrays.copyOf(head, head.length + tail);
+        int city = meeting;
+        for (int i = head.length; i < edges.length; i++) {
+            edges[i] = backward.predecessorEdge(city);
+            city = graph.getEdgeTarget(edges[i]);
+        }
+        return edges;
     }
-    
-    private void removeEdgeFromGraph(FlightGraph graph, FlightEdge edgeToRemove) {
-        List<FlightEdge> edges = graph.getEdges(edgeToRemove.getSource());
-        edges.removeIf(edge -> edge.getFlightId().equals(edgeToRemove.getFlightId()));
+
+    /**
+     * Fastest path from the contraction hierarchy, exact under the context's bans.
+     *
+     * The hierarchy ignores bans, but bans only make paths slower: if its route can be flown
+     * without a banned flight or airport, it is also the fastest route under the bans. Otherwise
+     * (typically a Yen spur whose fastest continuation is banned) every allowed first flight is
+     * tried with a hierarchy query for the rest; the best valid candidate is exact when no
+     * invalid candidate has a smaller lower bound. Anything else falls back to Dijkstra.
+     */
+    private int[] hierarchyShortestPath(FlightGraph graph, SearchContext context, ContractionHierarchy hierarchy,
+                                        int sourceId, int destinationId) {
+        ContractionHierarchy.Route route = hierarchy.route(context, sourceId, destinationId);
+        if (route == null) {
+            // Unreachable without bans, so unreachable with them
+            hierarchy.recordAnswer(true);
+            return null;
+        }
+        int[] direct = toEdges(graph, context, route.cities(), sourceId);
+        if (direct != null) {
+            hierarchy.recordAnswer(true);
+            return direct;
+        }
+
+        int[] best = null;
+        long bestDuration = Long.MAX_VALUE;
+        long unresolvedBound = Long.MAX_VALUE;
+        for (int e = graph.getEdgeStart(sourceId); e < graph.getEdgeEnd(sourceId); e++) {
+            int next = graph.getEdgeTarget(e);
+            if (context.isEdgeBanned(e) || context.isCityBanned(next) || next == sourceId) continue;
+
+            long firstLeg = graph.getEdgeDuration(e);
+            if (next == destinationId) {
+                if (firstLeg < bestDuration) {
+                    best = new int[] {e};
+                    bestDuration = firstLeg;
+                }
+                continue;
+            }
+            ContractionHierarchy.Route rest = hierarchy.route(context, next, destinationId);
+            if (rest == null || firstLeg + rest.duration() >= bestDuration) continue;
+
+            int[] tail = toEdges(graph, context, rest.cities(), sourceId);
+            if (tail == null) {
+                unresolvedBound = Math.min(unresolvedBound, firstLeg + rest.duration());
+                continue;
+            }
+            best = new int[tail.length + 1];
+            best[0] = e;
+            System.arraycopy(tail, 0, best, 1, tail.length);
+            bestDuration = firstLeg + rest.duration();
+        }
+
+        if (bestDuration <= unresolvedBound) {
+            hierarchy.recordAnswer(false);
+            return best;
+        }
+        hierarchy.recordFallback();
+        return dijkstraShortestPath(graph, context, null, sourceId, destinationId, false)
+                ? extractEdges(graph, context, destinationId) : null;
     }
-    
-    private boolean isDuplicate(List<FlightPath> existingPaths, FlightPath newPath) {
-        for (FlightPath existing : existingPaths) {
-            if (pathsEqual(existing, newPath)) {
-                return true;
+
+    /**
+     * Picks the fastest allowed flight for every hop of an airport-level route.
+     * @return the edges, or null if a hop can only be flown as fast by a banned flight, or the
+     *         route enters a banned airport or returns to {@code origin}
+     */
+    private static int[] toEdges(FlightGraph graph, SearchContext context, int[] cities, int origin) {
+        int[] edges = new int[cities.length - 1];
+        for (int i = 0; i + 1 < cities.length; i++) {
+            int from = cities[i];
+            int to = cities[i + 1];
+            if (context.isCityBanned(to) || to == origin) {
+                return null;
+            }
+            int fastest = -1;
+            int fastestAllowed = -1;
+            for (int e = graph.getEdgeStart(from); e < graph.getEdgeEnd(from); e++) {
+                if (graph.getEdgeTarget(e) != to) continue;
+                if (fastest < 0 || graph.getEdgeDuration(e) < graph.getEdgeDuration(fastest)) {
+                    fastest = e;
+                }
+                if (!context.isEdgeBanned(e)
+                        && (fastestAllowed < 0 || graph.getEdgeDuration(e) < graph.getEdgeDuration(fastestAllowed))) {
+                    fastestAllowed = e;
+                }
+            }
+            if (fastestAllowed < 0 || graph.getEdgeDuration(fastestAllowed) != graph.getEdgeDuration(fastest)) {
+                return null;
             }
+            edges[i] = fastestAllowed;
         }
-        return false;
+        return edges;
     }
-    
-    private boolean pathsEqual(FlightPath path1, FlightPath path2) {
-        List<FlightEdge> flights1 = path1.getFlights();
-        List<FlightEdge> flights2 = path2.getFlights();
-        
-        if (flights1.size() != flights2.size()) return false;
-        
-        for (int i = 0; i < flights1.size(); i++) {
-            if (!flights1.get(i).getFlightId().equals(flights2.get(i).getFlightId())) {
-                return false;
+
+    /**
+     * Hop-bounded search: layer {@code h} holds the best weight of every airport reachable in
+     * exactly {@code h} legs, relaxed only from the labels of layer {@code h - 1}. A label is
+     * kept only if it beats every label with fewer legs (a path with fewer legs and no more
+     * weight dominates it), and never if it cannot beat the best weight found for the
+     * destination, so tight bounds and FEWEST_STOPS explore only the first few layers. Strict
+     * domination also keeps the result loop-free.
+     * @return edge indices of the lightest path of at most {@code maxLegs} legs avoiding the
+     *         context's bans, or null if there is none
+     */
+    private int[] layeredShortestPath(FlightGraph graph, SearchContext context, int sourceId, int destinationId,
+                                      int maxLegs, Weighting weighting) {
+        if (sourceId == destinationId) {
+            return new int[0];
+        }
+        int cityCount = graph.getCityCount();
+        int layers = Math.min(maxLegs, cityCount - 1);
+        // The plain distance slots hold the best weight over all layers so far
+        context.prepare(cityCount);
+        context.prepareLabels(cityCount);
+        context.reach(sourceId, 0L, SearchContext.NO_EDGE);
+        int from = context.label(sourceId, 0L, SearchContext.NO_EDGE, SearchContext.NO_LABEL);
+        int to = context.labelCount();
+        long best = Long.MAX_VALUE;
+        int bestLabel = SearchContext.NO_LABEL;
+
+        for (int layer = 1; layer <= layers && from < to; layer++) {
+            context.nextLayer();
+            long nextMinimum = Long.MAX_VALUE;
+            for (int label = from; label < to; label++) {
+                int current = context.labelCity(label);
+                long currentDistance = context.labelDistance(label);
+                if (current == destinationId || currentDistance >= best) continue;
+
+                for (int e = graph.getEdgeStart(current); e < graph.getEdgeEnd(current); e++) {
+                    int neighbor = graph.getEdgeTarget(e);
+                    if (context.isEdgeBanned(e) || context.isCityBanned(neighbor)) continue;
+
+                    long newDistance = currentDistance + weighting.weight(graph, e);
+                    if (newDistance >= best || newDistance >= context.distance(neighbor)) continue;
+
+                    context.reach(neighbor, newDistance, e);
+                    int reached = context.label(neighbor, newDistance, e, label);
+                    if (neighbor == destinationId) {
+                        best = newDistance;
+                        bestLabel = reached;
+                    } else {
+                        nextMinimum = Math.min(nextMinimum, newDistance);
+                    }
+                }
             }
+            from = to;
+            to = nextMinimum < best ? context.labelCount() : from;
         }
-        return true;
+
+        if (bestLabel == SearchContext.NO_LABEL) {
+            return null;
+        }
+        int legs = 0;
+        for (int label = bestLabel; context.labelParent(label) != SearchContext.NO_LABEL; label = context.labelParent(label)) {
+            legs++;
+        }
+        int[] edges = new int[legs];
+        for (int label = bestLabel; legs > 0; label = context.labelParent(label)) {
+            edges[--legs] = context.labelEdge(label);
+        }
+        return edges;
     }
-    
+
+    private static long pathWeight(FlightGraph graph, int[] edges, Weighting weighting) {
+        long weight = 0L;
+        for (int edge : edges) {
+            weight += weighting.weight(graph, edge);
+        }
+        return weight;
+    }
+
+    /**
+     * Computes the landmark distances for the graph ahead of the first ALT query.
+     */
+    public void prepareLandmarks(FlightGraph graph) {
+        RouteGraph routes = routeGraphFor(graph);
+        landmarksFor(routes.collapsed(graph, true));
+        landmarksFor(routes.collapsed(graph, false));
+    }
+
+    /**
+     * Collapses the graph's parallel flights ahead of the first search.
+     */
+    public void prepareRoutes(FlightGraph graph) {
+        routeGraphFor(graph);
+    }
+
+    /**
+     * Builds the contraction hierarchy for the graph ahead of the first CH query.
+     */
+    public void prepareHierarchy(FlightGraph graph) {
+        hierarchyFor(routeGraphFor(graph).collapsed(graph, false));
+    }
+
+    /**
+     * @return preprocessing, shortcut, speedup and query metrics of the graph's hierarchy, or
+     *         null if none has been built for it
+     */
+    public Map<String, Object> getHierarchyStats(FlightGraph graph) {
+        RouteGraph routes = graph != null ? routeGraphIndex.get(graph) : null;
+        ContractionHierarchy hierarchy = routes != null ? hierarchyIndex.get(routes.collapsed(graph, false)) : null;
+        return hierarchy != null ? hierarchy.toMap() : null;
+    }
+
+    private ContractionHierarchy hierarchyFor(FlightGraph graph) {
+        return hierarchyIndex.computeIfAbsent(graph, g -> {
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(g,
+                    searchConfig.getContraction().getWitnessSettleLimit());
+            benchmark(g, hierarchy);
+            logger.info("Built contraction hierarchy for {} cities: {} shortcuts in {} ms", g.getCityCount(),
+                       hierarchy.getShortcutCount(), hierarchy.toMap().get("preprocessingMs"));
+            return hierarchy;
+        });
+    }
+
+    /**
+     * Times random fastest-path queries with plain Dijkstra and with the hierarchy, so the
+     * speedup on the current network is visible in the metrics.
+     */
+    private void benchmark(FlightGraph graph, ContractionHierarchy hierarchy) {
+        int benchmarkQueries = searchConfig.getContraction().getBenchmarkQueries();
+        if (benchmarkQueries <= 0 || graph.getCityCount() < 2) {
+            return;
+        }
+        SearchContext context = new SearchContext();
+        context.prepareBans(graph.getCityCount(), graph.getEdgeCount());
+        Random random = new Random(graph.getEdgeCount());
+        int[][] pairs = new int[benchmarkQueries][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new int[] {random.nextInt(graph.getCityCount()), random.nextInt(graph.getCityCount())};
+        }
+
+        long start = System.nanoTime();
+        for (int[] pair : pairs) {
+            dijkstraShortestPath(graph, context, null, pair[0], pair[1], false);
+        }
+        long dijkstraNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int[] pair : pairs) {
+            hierarchy.route(context, pair[0], pair[1]);
+        }
+        long hierarchyNanos = System.nanoTime() - start;
+
+        hierarchy.recordBenchmark(dijkstraNanos / pairs.length, hierarchyNanos / pairs.length);
+    }
+
+    private RouteGraph routeGraphFor(FlightGraph graph) {
+        return routeGraphIndex.computeIfAbsent(graph, g -> {
+            long start = System.nanoTime();
+            RouteGraph routes = RouteGraph.build(g);
+            logger.info("Collapsed {} flights into {} cheapest and {} fastest airport-pair routes in {} ms",
+                       g.getEdgeCount(), routes.collapsed(g, true).getEdgeCount(), routes.collapsed(g, false).getEdgeCount(),
+                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return routes;
+        });
+    }
+
+    private Timetable timetableFor(FlightGraph graph) {
+        return timetableIndex.computeIfAbsent(graph, g -> {
+            long start = System.nanoTime();
+            Timetable timetable = Timetable.build(g, searchConfig.getTimetable());
+            logger.info("Built timetable of {} connections for {} cities in {} ms", timetable.size(), g.getCityCount(),
+                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return timetable;
+        });
+    }
+
+    private Landmarks landmarksFor(FlightGraph graph) {
+        return landmarkIndex.computeIfAbsent(graph, g -> {
+            long start = System.nanoTime();
+            Landmarks landmarks = Landmarks.compute(g, searchConfig.getOnDemand().getLandmarks());
+            logger.info("Computed {} landmarks for {} cities in {} ms", landmarks.size(), g.getCityCount(),
+                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return landmarks;
+        });
+    }
+
+    /**
+     * Walks the predecessor edges back from a settled target.
+     */
+    private int[] extractEdges(FlightGraph graph, SearchContext context, int target) {
+        int legs = 0;
+        for (int city = target; context.predecessorEdge(city) != SearchContext.NO_EDGE;
+             city = graph.getEdgeSource(context.predecessorEdge(city))) {
+            legs++;
+        }
+
+        int[] edges = new int[legs];
+        int city = target;
+        for (int i = legs - 1; i >= 0; i--) {
+            edges[i] = context.predecessorEdge(city);
+            city = graph.getEdgeSource(edges[i]);
+        }
+        return edges;
+    }
+
+    private FlightPath toFlightPath(FlightGraph graph, int[] edges) {
+        FlightEdge[] flights = new FlightEdge[edges.length];
+        long totalCost = 0L;
+        int totalDuration = 0;
+        for (int i = 0; i < edges.length; i++) {
+            flights[i] = graph.getEdge(edges[i]);
+            totalCost += graph.getEdgeCost(edges[i]);
+            totalDuration += graph.getEdgeDuration(edges[i]);
+        }
+        return new FlightPath(Arrays.asList(flights), FlightGraph.fromFixedCost(totalCost), totalDuration);
+    }
+
+    private static boolean sharesPrefix(int[] path, int[] other, int length) {
+        return Arrays.equals(path, 0, length, other, 0, length);
+    }
+
     public List<FlightPath> findCheapestPaths(FlightGraph graph, String source, String destination, int k) {
         return findKShortestPaths(graph, source, destination, k, true);
     }
-    
+
     public List<FlightPath> findFastestPaths(FlightGraph graph, String source, String destination, int k) {
         return findKShortestPaths(graph, source, destination, k, false);
     }
-    
-    private static class Node {
-        String city;
-        double distance;
-        
-        Node(String city, double distance) {
-            this.city = city;
-            this.distance = distance;
+
+    public List<FlightPath> findCheapestPaths(FlightGraph graph, String source, String destination, int k,
+                                              SearchConfig.Engine engine) {
+        return findKShortestPaths(graph, source, destination, k, true, engine);
+    }
+
+    public List<FlightPath> findFastestPaths(FlightGraph graph, String source, String destination, int k,
+                                             SearchConfig.Engine engine) {
+        return findKShortestPaths(graph, source, destination, k, false, engine);
+    }
+
+    /**
+     * One flight combination of a routing: {@code choice[leg]} indexes {@code flights[leg]}.
+     * Ties keep the routing order.
+     */
+    private record Expansion(int routing, int[][] flights, int[] choice, int pivot, long weight)
+            implements Comparable<Expansion> {
+        @Override
+        public int compareTo(Expansion other) {
+            int byWeight = Long.compare(weight, other.weight);
+            return byWeight != 0 ? byWeight : Integer.compare(routing, other.routing);
+        }
+    }
+
+    /**
+     * A path as a sequence of edge indices. Each edge index identifies exactly one flight in
+     * the graph, so equality and hashing over the indices deduplicate by flight-id sequence.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        final int[] edges;
+        final long weight;
+        private final int hash;
+
+        Candidate(int[] edges, long weight) {
+            this.edges = edges;
+            this.weight = weight;
+            this.hash = Arrays.hashCode(edges);
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byWeight = Long.compare(weight, other.weight);
+            return byWeight != 0 ? byWeight : Integer.compare(edges.length, other.edges.length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Candidate other && hash == other.hash && Arrays.equals(edges, other.edges);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,351 @@
+package com.fbs.search.service;
+
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import com.fbs.search.model.FlightGraph;
+import com.fbs.search.model.FlightPath;
+import com.fbs.search.model.GraphSnapshot;
+import com.fbs.search.model.SearchFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves a search from Redis and, on a miss, computes it from the in-memory graph and writes
+ * it back. Concurrent misses for the same route and criteria share one computation. When Redis
+ * fails, it is bypassed for a short back-off and searches are answered from the graph alone.
+ */
+@Service
+public class FlightSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightSearchService.class);
+
+    @Autowired
+    private RedisFlightCacheService cacheService;
+
+    @Autowired
+    private GraphService graphService;
+
+    @Autowired
+    private FlightSearchAlgorithm searchAlgorithm;
+
+    @Autowired
+    private SearchConfig searchConfig;
+
+    private final Map<ComputeKey, CompletableFuture<Optional<CachedSearchResult>>> inFlight = new ConcurrentHashMap<>();
+    private volatile long redisRetryAtNanos;
+    private volatile boolean redisDown;
+
+    private final AtomicLong computed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong degraded = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+    private final AtomicLong filterRecomputed = new AtomicLong();
+    private final Map<SearchConfig.Engine, EngineStats> engineStats = new ConcurrentHashMap<>();
+
+    public Optional<CachedSearchResult> search(String source, String destination, LocalDate date, String criteria) {
+        return search(source, destination, date, criteria, null);
+    }
+
+    /**
+     * @param engine engine for an on-demand computation, or null for the configured default.
+     *               Every engine is exact, so concurrent misses share one computation whichever
+     *               engine they asked for.
+     */
+    public Optional<CachedSearchResult> search(String source, String destination, LocalDate date, String criteria,
+                                               SearchConfig.Engine engine) {
+        return search(source, destination, date, criteria, engine, null);
+    }
+
+    /**
+     * @param maxStops largest number of intermediate stops, or null for no bound. Bounded
+     *                 results are cached under their own criteria key.
+     */
+    public Optional<CachedSearchResult> search(String source, String destination, LocalDate date, String criteria,
+                                               SearchConfig.Engine engine, Integer maxStops) {
+        return search(source, destination, date, criteria, engine, maxStops, null);
+    }
+
+    /**
+     * @param departAfter earliest departure of an EARLIEST_ARRIVAL search, or null for midnight
+     */
+    public Optional<CachedSearchResult> search(String source, String destination, LocalDate date, String criteria,
+                                               SearchConfig.Engine engine, Integer maxStops, LocalTime departAfter) {
+        return search(source, destination, date, criteria, engine, maxStops, departAfter, false);
+    }
+
+    /**
+     * @param distinctRoutings one path per airport sequence instead of every flight combination
+     */
+    public Optional<CachedSearchResult> search(String source, String destination, LocalDate date, String criteria,
+                                               SearchConfig.Engine engine, Integer maxStops, LocalTime departAfter,
+                                               boolean distinctRoutings) {
+        String criteriaKey = RedisFlightCacheService.criteriaKey(criteria, maxStops, departAfter, distinctRoutings);
+        if (!cacheService.isWithinBookingHorizon(date)) {
+            logger.debug("Date {} outside booking horizon for {}:{}", date, source, destination);
+            return Optional.empty();
+        }
+        if (!searchConfig.getOnDemand().isEnabled()) {
+            return cacheService.getCachedResults(source, destination, criteriaKey);
+        }
+
+        boolean redisAvailable = isRedisAvailable();
+        if (redisAvailable) {
+            try {
+                Optional<CachedSearchResult> cached = cacheService.getCachedResults(source, destination, criteriaKey);
+                if (cached.isPresent()) {
+                    return cached;
+                }
+            } catch (DataAccessException e) {
+                markRedisDown(e);
+                redisAvailable = false;
+            }
+        }
+
+        if (!redisAvailable) {
+            degraded.incrementAndGet();
+        }
+        // Route entries are date independent, so misses for any date share one computation
+        return computeCoalesced(new ComputeKey(source, destination, criteria, maxStops, departAfter,
+                        distinctRoutings),
+                engine != null ? engine : defaultEngine(criteria));
+    }
+
+    private SearchConfig.Engine defaultEngine(String criteria) {
+        SearchConfig.Contraction contraction = searchConfig.getContraction();
+        if ("FASTEST".equals(criteria) && contraction.isEnabled() && contraction.isDefaultForFastest()) {
+            return SearchConfig.Engine.CH;
+        }
+        return searchConfig.getOnDemand().getEngine();
+    }
+
+    private Optional<CachedSearchResult> computeCoalesced(ComputeKey key, SearchConfig.Engine engine) {
+        CompletableFuture<Optional<CachedSearchResult>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<CachedSearchResult>> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            Optional<CachedSearchResult> result = compute(key, engine);
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private Optional<CachedSearchResult> compute(ComputeKey key, SearchConfig.Engine engine) {
+        GraphSnapshot snapshot = graphService.getSnapshot();
+        if (snapshot == null) {
+            logger.warn("Flight graph not initialized, cannot compute {}:{}", key.source(), key.destination());
+            return Optional.empty();
+        }
+        FlightGraph graph = snapshot.graph();
+
+        long start = System.nanoTime();
+        int k = searchConfig.getPrecompute().getPathsPerRoute();
+        List<FlightPath> paths = searchAlgorithm.findPaths(graph, key.source(), key.destination(), k, key.criteria(),
+                engine, key.maxStops(), key.departAfter(), key.distinctRoutings());
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        computed.incrementAndGet();
+        engineStats.computeIfAbsent(engine, e -> new EngineStats()).record(micros);
+        logger.debug("Computed {} paths on demand for {}:{}:{} with {} in {} µs", paths.size(), key.source(),
+                    key.destination(), key.criteriaKey(), engine, micros);
+
+        if (paths.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (searchConfig.getOnDemand().isWriteBack() && isRedisAvailable()) {
+            writeBack(key, paths, snapshot.version());
+        }
+        return Optional.of(cacheService.toCachedResult(paths));
+    }
+
+    /**
+     * Writes computed paths back unless the graph they were computed on has been replaced. A
+     * cancellation publishes its graph before it invalidates the flight's entries, and an entry
+     * is indexed in the same pipeline as it is written, so an entry written while the version is
+     * unchanged is found by that invalidation. One that raced past it is evicted again.
+     */
+    private void writeBack(ComputeKey key, List<FlightPath> paths, long version) {
+        if (!isCurrentVersion(version)) {
+            logger.debug("Graph changed while computing {}:{}:{}, not caching", key.source(), key.destination(),
+                        key.criteriaKey());
+            return;
+        }
+        try {
+            cacheService.cacheSearchResultsIfAbsent(key.source(), key.destination(), key.criteriaKey(), paths);
+            if (!isCurrentVersion(version)) {
+                cacheService.evictRoute(key.source(), key.destination(), key.criteriaKey());
+            }
+        } catch (RuntimeException e) {
+            // The write-back is best effort; the computed answer is still served
+            markRedisDown(e);
+        }
+    }
+
+    private boolean isCurrentVersion(long version) {
+        GraphSnapshot current = graphService.getSnapshot();
+        return current != null && current.version() == version;
+    }
+
+    /**
+     * A filtered result, and whether the filter forced an on-demand search.
+     */
+    public record FilteredResult(Optional<CachedSearchResult> result, boolean recomputed) {}
+
+    /**
+     * Narrows the unfiltered result of the same search to the paths a filter allows. Cached
+     * paths are a route's top K under its criteria, so those that pass are also the top paths
+     * of the filtered search. Only when a full result keeps fewer than the configured minimum
+     * is the search run again on demand, with the filter applied during traversal. PARETO,
+     * EARLIEST_ARRIVAL and distinct-routing results recompute as soon as a path is dropped,
+     * since the dropped path may have hidden another that passes. Filtered results are not
+     * cached.
+     * @param unfiltered the result for the search without the filter
+     */
+    public FilteredResult filter(Optional<CachedSearchResult> unfiltered, SearchFilter filter, String source,
+                                 String destination, String criteria, SearchConfig.Engine engine, Integer maxStops,
+                                 LocalTime departAfter, boolean distinctRoutings) {
+        FlightGraph graph = graphService.getFlightGraph();
+        if (unfiltered.isEmpty() || graph == null) {
+            // Nothing to narrow, or no graph to resolve the cached flights against
+            return new FilteredResult(Optional.empty(), false);
+        }
+        filtered.incrementAndGet();
+
+        CachedSearchResult candidates = unfiltered.get();
+        EdgeFilter edgeFilter = EdgeFilter.compile(graph, filter, graph.getCityId(source));
+        List<CachedFlightPath> kept = new ArrayList<>();
+        for (CachedFlightPath path : candidates.getPaths()) {
+            if (matches(graph, edgeFilter, filter, path)) {
+                kept.add(path);
+            }
+        }
+
+        int k = searchConfig.getPrecompute().getPathsPerRoute();
+        boolean ranked = !"PARETO".equals(criteria) && !"EARLIEST_ARRIVAL".equals(criteria) && !distinctRoutings;
+        boolean complete = ranked ? kept.size() >= Math.min(k, searchConfig.getFilters().getMinResults())
+                                    || candidates.getPaths().size() < k
+                                  : kept.size() == candidates.getPaths().size();
+        if (complete || !searchConfig.getOnDemand().isEnabled()) {
+            CachedSearchResult result = new CachedSearchResult(kept);
+            result.setComputedAt(candidates.getComputedAt());
+            return new FilteredResult(kept.isEmpty() ? Optional.empty() : Optional.of(result), false);
+        }
+
+        filterRecomputed.incrementAndGet();
+        long start = System.nanoTime();
+        List<FlightPath> paths = searchAlgorithm.findPaths(graph, source, destination, k, criteria,
+                engine != null ? engine : defaultEngine(criteria), maxStops, departAfter, distinctRoutings, filter);
+        logger.debug("Recomputed {}:{}:{} with a filter in {} µs, {} of {} cached paths passed", source, destination,
+                    criteria, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), kept.size(),
+                    candidates.getPaths().size());
+        return new FilteredResult(paths.isEmpty() ? Optional.empty() : Optional.of(cacheService.toCachedResult(paths)),
+                true);
+    }
+
+    private static boolean matches(FlightGraph graph, EdgeFilter edgeFilter, SearchFilter filter, CachedFlightPath path) {
+        if (!filter.allowsTotals(path.getCost(), path.getDuration())) {
+            return false;
+        }
+        if (edgeFilter == null) {
+            return true;
+        }
+        for (UUID flightId : path.getFlights()) {
+            int edge = graph.getEdgeIndex(flightId);
+            if (edge < 0 || !edgeFilter.allowsEdge(edge)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRedisAvailable() {
+        if (redisDown && System.nanoTime() - redisRetryAtNanos < 0) {
+            return false;
+        }
+        redisDown = false;
+        return true;
+    }
+
+    private void markRedisDown(RuntimeException e) {
+        long retrySeconds = searchConfig.getOnDemand().getRedisRetrySeconds();
+        redisRetryAtNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(retrySeconds);
+        redisDown = true;
+        logger.warn("Redis unavailable, serving searches from the in-memory graph for {}s: {}", retrySeconds, e.getMessage());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", searchConfig.getOnDemand().isEnabled());
+        result.put("redisAvailable", !redisDown);
+        result.put("computed", computed.get());
+        result.put("coalesced", coalesced.get());
+        result.put("degraded", degraded.get());
+        result.put("filtered", filtered.get());
+        result.put("filterRecomputed", filterRecomputed.get());
+        result.put("inFlight", inFlight.size());
+        result.put("defaultEngine", searchConfig.getOnDemand().getEngine());
+        Map<String, Object> engines = new LinkedHashMap<>();
+        engineStats.forEach((engine, stats) -> engines.put(engine.name(), stats.toMap()));
+        result.put("engines", engines);
+        result.put("contractionHierarchy", searchAlgorithm.getHierarchyStats(graphService.getFlightGraph()));
+        return result;
+    }
+
+    private record ComputeKey(String source, String destination, String criteria, Integer maxStops,
+                              LocalTime departAfter, boolean distinctRoutings) {
+        String criteriaKey() {
+            return RedisFlightCacheService.criteriaKey(criteria, maxStops, departAfter, distinctRoutings);
+        }
+    }
+
+    private static class EngineStats {
+        private final AtomicLong computations = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        void record(long micros) {
+            computations.incrementAndGet();
+            totalMicros.addAndGet(micros);
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long count = computations.get();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("computations", count);
+            result.put("avgMicros", count > 0 ? totalMicros.get() / count : 0);
+            result.put("maxMicros", maxMicros.get());
+            return result;
+        }
+    }
+}
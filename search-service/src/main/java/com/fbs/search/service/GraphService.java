@@ -1,24 +1,46 @@
 package com.fbs.search.service;
 
 import com.fbs.search.accessor.InventoryServiceAccessor;
+import com.fbs.search.config.SearchConfig;
 import com.fbs.search.dto.Flight;
+import com.fbs.search.dto.FlightChange;
+import com.fbs.search.dto.FlightChanges;
 import com.fbs.search.exception.SearchServiceError;
 import com.fbs.search.exception.SearchServiceException;
 import com.fbs.search.model.FlightEdge;
 import com.fbs.search.model.FlightGraph;
 import com.fbs.search.model.FlightPath;
+import com.fbs.search.model.GraphSnapshot;
+import com.fbs.search.model.RouteKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class GraphService {
 
     private static final Logger logger = LoggerFactory.getLogger(GraphService.class);
+    private static final List<String> STOP_BOUND_CRITERIA = List.of("CHEAPEST", "FASTEST");
 
     @Autowired
     private InventoryServiceAccessor inventoryServiceAccessor;
@@ -29,97 +51,691 @@ public class GraphService {
     @Autowired
     private RedisFlightCacheService cacheService;
 
-    private FlightGraph costGraph;
-    private FlightGraph durationGraph;
+    @Autowired
+    private SearchConfig searchConfig;
+
+    @Autowired
+    private SearchNearCache nearCache;
+
+    @Autowired
+    private GraphSnapshotStore snapshotStore;
+
+    @Autowired
+    private SeatAvailability seatAvailability;
+
+    // A single compiled graph carries both the cost and the duration weights. Readers take the
+    // current snapshot without locking; writers (rebuild, cancellation) are serialized and build
+    // the next graph off to the side before swapping it in.
+    private final AtomicReference<GraphSnapshot> snapshot = new AtomicReference<>();
+
+    // Serializes graph swaps, incremental cache updates and snapshot saves. Full rebuilds also
+    // hold the service monitor for their whole precompute; cancellations only take this lock, so
+    // they do not wait for a precompute. Lock order: the monitor, then this lock.
+    private final Object graphLock = new Object();
+
+    // Cache generation precomputed from the current graph, recorded in the snapshot file
+    private volatile long cacheGeneration;
+
+    // Inventory change sequence the current graph reflects; -1 until known, e.g. after a
+    // snapshot restore before the first reconcile
+    private volatile long changeWatermark = -1;
 
+    // Sequences at or below the watermark the feed skipped because they had not committed yet,
+    // with the System.nanoTime() they were first reported at; guarded by the monitor
+    private final Map<Long, Long> changeGaps = new HashMap<>();
+
+    private final WarmupStatus warmup = new WarmupStatus();
+
+    private final ScheduledExecutorService warmupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "graph-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Starts from the local snapshot file when there is a valid one, so searches are served
+     * without waiting for inventory-service; otherwise builds the graph from inventory on a
+     * background thread. Either way the Spring context starts without waiting for the
+     * precompute; readiness is reported through {@link #isReady()}. Once the graph is loaded it
+     * is kept fresh by polling inventory's change feed.
+     */
     @PostConstruct
-    public void initializeGraphs() {
+    public void bootstrap() {
+        Optional<GraphSnapshotStore.StoredGraph> stored = snapshotStore.isEnabled() ? snapshotStore.load() : Optional.empty();
+        if (stored.isPresent()) {
+            restore(stored.get());
+        } else {
+            warmupExecutor.execute(this::warmUp);
+        }
+        scheduleChangeSync();
+    }
+
+    private void scheduleChangeSync() {
+        SearchConfig.Sync sync = searchConfig.getSync();
+        if (sync.isEnabled()) {
+            long interval = Math.max(1, sync.getPollIntervalSeconds());
+            warmupExecutor.scheduleWithFixedDelay(this::pollChanges, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void pollChanges() {
         try {
-            logger.info("Pre-computing flight graphs...");
-            List<Flight> allFlights = inventoryServiceAccessor.getAllFlights();
-
-            if (allFlights == null || allFlights.isEmpty()) {
-                logger.error("No flights received from inventory service");
-                throw new SearchServiceException(SearchServiceError.INVENTORY_SERVICE_ERROR);
-            }
-
-            costGraph = new FlightGraph();
-            durationGraph = new FlightGraph();
-
-            for (Flight flight : allFlights) {
-                try {
-                    FlightEdge edge = new FlightEdge(
-                        flight.getFlightId(),
-                        flight.getSource(),
-                        flight.getDestination(),
-                        flight.getCost(),
-                        flight.getDuration(),
-                        flight.getFlightNumber()
-                    );
-
-                    costGraph.addEdge(edge);
-                    durationGraph.addEdge(edge);
-                } catch (Exception e) {
-                    logger.warn("Failed to process flight: {}", flight.getFlightId(), e);
-                }
-            }
+            syncChanges();
+        } catch (Exception e) {
+            // The watermark only advances once changes are applied, so the next poll retries them
+            logger.warn("Flight change sync failed, retrying on the next poll: {}", e.getMessage());
+        }
+    }
 
-            logger.info("Graphs pre-computed successfully! Cities: {}, Flights: {}",
-                       costGraph.getCities().size(), allFlights.size());
+    private void warmUp() {
+        try {
+            initializeGraphs();
+        } catch (Exception e) {
+            long retrySeconds = searchConfig.getSnapshot().getReconcileRetrySeconds();
+            logger.warn("Graph warm-up failed, retrying in {}s", retrySeconds);
+            warmupExecutor.schedule(this::warmUp, retrySeconds, TimeUnit.SECONDS);
+        }
+    }
 
-            // Pre-compute and cache K-shortest paths for all city pairs
-            preComputeAllPaths();
+    @PreDestroy
+    void shutdown() {
+        warmupExecutor.shutdownNow();
+    }
+
+    public synchronized void initializeGraphs() {
+        try {
+            logger.info("Pre-computing flight graphs...");
+            rebuild(fetchGraph());
 
         } catch (SearchServiceException e) {
             logger.error("Failed to initialize flight graphs: {}", e.getMessage());
+            warmup.fail(e.getMessage());
             throw e;
         } catch (Exception e) {
             logger.error("Unexpected error during graph initialization", e);
+            warmup.fail(e.getMessage());
             throw new SearchServiceException(SearchServiceError.GRAPH_NOT_INITIALIZED);
         }
     }
 
-    private void preComputeAllPaths() {
+    private synchronized void restore(GraphSnapshotStore.StoredGraph stored) {
+        warmup.enter(WarmupStatus.Phase.RESTORE);
+        prepareLandmarks(stored.graph());
+        snapshot.set(new GraphSnapshot(stored.graphVersion(), stored.graph(), LocalDateTime.now()));
+
+        boolean cacheCurrent = false;
         try {
-            logger.info("Starting pre-computation of all K-shortest paths...");
-            int totalPairs = 0;
-            int cachedPairs = 0;
-
-            for (String source : costGraph.getCities()) {
-                for (String destination : costGraph.getCities()) {
-                    if (!source.equals(destination)) {
-                        try {
-                            // Find top 10 cheapest and fastest paths
-                            List<FlightPath> cheapestPaths = searchAlgorithm.findCheapestPaths(costGraph, source, destination, 10);
-                            List<FlightPath> fastestPaths = searchAlgorithm.findFastestPaths(durationGraph, source, destination, 10);
-
-                            // Only cache if paths exist
-                            if (!cheapestPaths.isEmpty() || !fastestPaths.isEmpty()) {
-                                cacheService.preComputeAndCacheAll(source, destination, cheapestPaths, fastestPaths);
-                                cachedPairs++;
-                            }
-                        } catch (Exception e) {
-                            logger.warn("Failed to compute paths for route {}:{}", source, destination, e);
-                        }
-                        totalPairs++;
-                    }
+            cacheCurrent = stored.generation() > 0 && stored.generation() == cacheService.getActiveGeneration();
+        } catch (Exception e) {
+            logger.warn("Could not read the active cache generation, it will be recomputed: {}", e.getMessage());
+        }
+        cacheGeneration = cacheCurrent ? stored.generation() : 0;
+
+        logger.info("Restored graph v{} from snapshot (cities: {}, flights: {}, cache generation {}), reconciling with inventory in background",
+                   stored.graphVersion(), stored.graph().getCityCount(), stored.graph().getEdgeCount(),
+                   cacheCurrent ? stored.generation() : "stale");
+        warmupExecutor.execute(this::reconcile);
+    }
+
+    /**
+     * Compares the restored graph with inventory and rebuilds if the network changed. The cache
+     * is also recomputed when the snapshot's generation is no longer the active one. Retries
+     * while inventory-service is unreachable; searches keep being served from the snapshot.
+     */
+    private synchronized void reconcile() {
+        FlightGraph fetched;
+        try {
+            fetched = fetchGraph();
+        } catch (Exception e) {
+            long retrySeconds = searchConfig.getSnapshot().getReconcileRetrySeconds();
+            logger.warn("Inventory unavailable for graph reconcile, retrying in {}s: {}", retrySeconds, e.getMessage());
+            warmup.fail("Inventory unavailable: " + e.getMessage());
+            warmupExecutor.schedule(this::reconcile, retrySeconds, TimeUnit.SECONDS);
+            return;
+        }
+
+        try {
+            if (snapshotStore.fingerprint(fetched) != snapshotStore.fingerprint(getFlightGraph())) {
+                logger.info("Inventory differs from the restored graph, rebuilding");
+                rebuild(fetched);
+            } else if (cacheGeneration == 0) {
+                logger.info("Restored graph matches inventory, recomputing the cache");
+                GraphSnapshot current = snapshot.get();
+                cacheGeneration = preComputeAllPaths(current.graph());
+                saveSnapshot();
+                warmup.enter(WarmupStatus.Phase.READY);
+            } else {
+                logger.info("Restored graph matches inventory and cache generation {} is active", cacheGeneration);
+                warmup.enter(WarmupStatus.Phase.READY);
+            }
+        } catch (Exception e) {
+            logger.error("Graph reconcile failed", e);
+            warmup.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Streams flights from inventory straight into a graph builder as they arrive, so the full
+     * flight list is never buffered next to the graph.
+     */
+    private FlightGraph fetchGraph() {
+        FlightGraph.Builder graphBuilder = FlightGraph.builder();
+        AtomicLong received = new AtomicLong();
+        warmup.enter(WarmupStatus.Phase.FETCH, 0, received::get);
+        // Read before the export, so changes committed while it streams are polled afterwards
+        long watermark = readChangesHead();
+
+        inventoryServiceAccessor.streamAllFlights(flight -> {
+            received.incrementAndGet();
+            addFlight(graphBuilder, flight);
+            seatAvailability.update(flight.getFlightId(), flight.getAvailableSeats());
+        });
+
+        if (graphBuilder.size() == 0) {
+            logger.error("No flights received from inventory service");
+            throw new SearchServiceException(SearchServiceError.INVENTORY_SERVICE_ERROR);
+        }
+
+        warmup.enter(WarmupStatus.Phase.BUILD);
+        FlightGraph graph = graphBuilder.build();
+        seatAvailability.retain(graph);
+        changeWatermark = watermark;
+        changeGaps.clear();
+        return graph;
+    }
+
+    private long readChangesHead() {
+        if (!searchConfig.getSync().isEnabled()) {
+            return -1;
+        }
+        try {
+            return inventoryServiceAccessor.getChangesHead().orElse(-1);
+        } catch (Exception e) {
+            logger.warn("Could not read the flight change head, delta sync waits for the next full load: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    private void addFlight(FlightGraph.Builder graphBuilder, Flight flight) {
+        FlightEdge edge = toEdge(flight);
+        if (edge != null) {
+            graphBuilder.addEdge(edge);
+        }
+    }
+
+    private FlightEdge toEdge(Flight flight) {
+        if (flight.getFlightId() == null || flight.getSource() == null || flight.getDestination() == null
+                || flight.getCost() == null || flight.getDuration() == null) {
+            logger.warn("Failed to process flight: {}", flight.getFlightId());
+            return null;
+        }
+        return new FlightEdge(
+            flight.getFlightId(),
+            flight.getSource(),
+            flight.getDestination(),
+            flight.getCost(),
+            flight.getDuration(),
+            flight.getFlightNumber(),
+            flight.getDepartureTime(),
+            flight.getArrivalTime()
+        );
+    }
+
+    /**
+     * Pulls the flight changes committed since the graph was last synced and applies them to the
+     * in-memory graph, without reloading the full flight list. Removals only recompute the city
+     * pairs that used the removed flights; an added or changed flight can improve any pair, so
+     * the cache is recomputed into a new generation from the updated graph.
+     * @return number of flights whose changes were applied
+     */
+    public synchronized int syncChanges() {
+        GraphSnapshot current = snapshot.get();
+        long since = changeWatermark;
+        if (current == null || since < 0) {
+            return 0;
+        }
+
+        // Entries carry the flight's current state, so the last entry per flight wins
+        Map<UUID, FlightChange> latest = new LinkedHashMap<>();
+        Map<Long, Long> gaps = openChangeGaps();
+        int pageSize = searchConfig.getSync().getPageSize();
+        FlightChanges page;
+        do {
+            page = inventoryServiceAccessor.getFlightChanges(since, gaps.keySet(), pageSize);
+            for (FlightChange change : page.changes()) {
+                latest.put(change.flightId(), change);
+            }
+            since = page.watermark();
+            gaps = trackGaps(gaps, page.gaps());
+        } while (page.hasMore() && !page.changes().isEmpty());
+
+        List<UUID> removed = new ArrayList<>();
+        List<FlightEdge> upserted = new ArrayList<>();
+        for (FlightChange change : latest.values()) {
+            if (change.isRemoval()) {
+                seatAvailability.remove(change.flightId());
+                if (current.graph().getEdgeIndex(change.flightId()) >= 0) {
+                    removed.add(change.flightId());
+                }
+                continue;
+            }
+            seatAvailability.update(change.flightId(), change.flight().getAvailableSeats());
+            FlightEdge edge = toEdge(change.flight());
+            int existing = current.graph().getEdgeIndex(change.flightId());
+            // Changes the graph already reflects (e.g. replayed after a full load) need no recompute
+            if (edge != null && (existing < 0 || !sameRoute(current.graph().getEdge(existing), edge))) {
+                upserted.add(edge);
+            }
+        }
+
+        if (!upserted.isEmpty()) {
+            logger.info("Applying {} added/changed and {} removed flights from the change feed", upserted.size(), removed.size());
+            rebuild(current.graph().withChanges(removed, upserted));
+        } else if (!removed.isEmpty()) {
+            applyFlightCancellations(removed);
+        }
+        if (since != changeWatermark) {
+            logger.debug("Flight change watermark advanced from {} to {}", changeWatermark, since);
+        }
+        changeWatermark = since;
+        changeGaps.clear();
+        changeGaps.putAll(gaps);
+        return upserted.size() + removed.size();
+    }
+
+    // Gaps still worth re-reading; one open longer than the timeout is taken to have rolled back
+    private Map<Long, Long> openChangeGaps() {
+        long timeoutSeconds = searchConfig.getSync().getGapTimeoutSeconds();
+        long now = System.nanoTime();
+        Map<Long, Long> open = new HashMap<>();
+        changeGaps.forEach((sequence, firstSeen) -> {
+            if (now - firstSeen < TimeUnit.SECONDS.toNanos(timeoutSeconds)) {
+                open.put(sequence, firstSeen);
+            } else {
+                logger.warn("Flight change {} did not commit within {}s, no longer waiting for it", sequence, timeoutSeconds);
+            }
+        });
+        return open;
+    }
+
+    // The page reports every gap still open, so gaps it leaves out were filled by it
+    private static Map<Long, Long> trackGaps(Map<Long, Long> tracked, List<Long> reported) {
+        long now = System.nanoTime();
+        Map<Long, Long> gaps = new HashMap<>();
+        for (Long sequence : reported) {
+            gaps.put(sequence, tracked.getOrDefault(sequence, now));
+        }
+        return gaps;
+    }
+
+    private static boolean sameRoute(FlightEdge current, FlightEdge updated) {
+        return current.getSource().equals(updated.getSource())
+                && current.getDestination().equals(updated.getDestination())
+                && current.getCost().compareTo(updated.getCost()) == 0
+                && current.getDuration().equals(updated.getDuration())
+                && Objects.equals(current.getFlightNumber(), updated.getFlightNumber())
+                && Objects.equals(current.getDepartureTime(), updated.getDepartureTime())
+                && Objects.equals(current.getArrivalTime(), updated.getArrivalTime());
+    }
+
+    private void rebuild(FlightGraph graph) {
+        GraphSnapshot published = publish(graph);
+
+        logger.info("Graphs pre-computed successfully! Version: {}, Cities: {}, Flights: {}",
+                   published.version(), published.graph().getCityCount(), published.graph().getEdgeCount());
+
+        // Searches are served from here on; pairs not yet precomputed are computed on demand
+        cacheGeneration = preComputeAllPaths(published.graph());
+        saveSnapshot();
+        warmup.enter(WarmupStatus.Phase.READY);
+    }
+
+    // Saves the current graph, which may be newer than the one a precompute started from
+    private void saveSnapshot() {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+        synchronized (graphLock) {
+            GraphSnapshot current = snapshot.get();
+            snapshotStore.save(current.graph(), current.version(), cacheGeneration);
+        }
+    }
+
+    /**
+     * Writes every city pair into a fresh cache generation and activates it in one step once the
+     * run completes, so readers never see a mix of old and new results.
+     * @return the activated generation, or 0 if the run did not complete
+     */
+    private long preComputeAllPaths(FlightGraph graph) {
+        SearchConfig.Precompute config = searchConfig.getPrecompute();
+        int parallelism = config.resolveParallelism();
+        long generation;
+        try {
+            generation = cacheService.beginGeneration();
+        } catch (Exception e) {
+            logger.error("Could not start a cache generation, skipping pre-computation", e);
+            return 0;
+        }
+        PrecomputeProgress progress = new PrecomputeProgress(
+                (long) graph.getCityCount() * (graph.getCityCount() - 1));
+        warmup.enter(WarmupStatus.Phase.PRECOMPUTE, progress.totalPairs, progress.completedPairs::get);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ScheduledExecutorService progressLogger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "precompute-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            logger.info("Starting pre-computation of all K-shortest paths for {} city pairs on {} threads into generation {}...",
+                       progress.totalPairs, parallelism, generation);
+            long logInterval = Math.max(1, config.getProgressLogIntervalSeconds());
+            progressLogger.scheduleAtFixedRate(progress::log, logInterval, logInterval, TimeUnit.SECONDS);
+
+            // One task per source airport; hub sources split their destinations so idle workers can steal them
+            List<PrecomputeTask> tasks = new ArrayList<>(graph.getCityCount());
+            if (config.getMaxCities() > 0 && graph.getCityCount() > config.getMaxCities()) {
+                // Too large to precompute every pair: the empty generation retires results of the
+                // previous graph and every search is computed on demand
+                logger.info("{} cities exceed the precompute limit of {}, serving all searches on demand",
+                           graph.getCityCount(), config.getMaxCities());
+            } else {
+                for (int source = 0; source < graph.getCityCount(); source++) {
+                    tasks.add(new PrecomputeTask(graph, generation, source, 0, graph.getCityCount(), config, progress));
                 }
             }
+            pool.submit(() -> ForkJoinTask.invokeAll(tasks)).get();
+
+            // Pairs that failed are computed on demand, so a partial generation is still activated
+            warmup.enter(WarmupStatus.Phase.PUBLISH);
+            cacheService.activateGeneration(generation);
+            nearCache.invalidateAll();
+            replayRemovals(graph);
 
-            logger.info("Pre-computed {} city pairs. Cached {} pairs with connections. Cache entries: {}",
-                       totalPairs, cachedPairs, cacheService.getCacheSize());
+            logger.info("Pre-computed {} city pairs in {} ms. Cached {} pairs with connections. Cache entries: {}",
+                       progress.completedPairs.get(), progress.elapsedMillis(), progress.cachedPairs.get(),
+                       cacheService.getCacheSize());
+            logger.info("Pre-compute cache writes: {}", progress.writeStats);
+            return generation;
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Pre-computation of paths interrupted", e);
+            cacheService.abandonGeneration(generation);
         } catch (Exception e) {
             logger.error("Error during pre-computation of paths", e);
-            // Don't throw exception here as partial pre-computation is acceptable
+            // Readers stay on the previous generation; searches it lacks are computed on demand
+            cacheService.abandonGeneration(generation);
+        } finally {
+            progressLogger.shutdownNow();
+            pool.shutdownNow();
+        }
+        return 0;
+    }
+
+    private void preComputeRoute(FlightGraph graph, String source, String destination, int k,
+                                 RedisFlightCacheService.WriteBatch batch, PrecomputeProgress progress) {
+        try {
+            // Find top K cheapest and fastest paths
+            List<FlightPath> cheapestPaths = searchAlgorithm.findCheapestPaths(graph, source, destination, k);
+            List<FlightPath> fastestPaths = searchAlgorithm.findFastestPaths(graph, source, destination, k);
+
+            // Only cache if paths exist; without any path no stop bound has one either
+            if (!cheapestPaths.isEmpty() || !fastestPaths.isEmpty()) {
+                cacheService.preComputeAndCacheAll(batch, source, destination, cheapestPaths, fastestPaths);
+                cacheAdditionalCriteria(graph, batch, source, destination, k);
+                progress.cachedPairs.incrementAndGet();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to compute paths for route {}:{}", source, destination, e);
+        }
+        progress.completedPairs.incrementAndGet();
+    }
+
+    /**
+     * Caches the Pareto front, if enabled, and CHEAPEST and FASTEST for every configured stop
+     * bound with the layered search.
+     */
+    private void cacheAdditionalCriteria(FlightGraph graph, RedisFlightCacheService.WriteBatch batch,
+                                         String source, String destination, int k) {
+        if (searchConfig.getPareto().isPrecompute()) {
+            cacheService.cacheRoute(batch, source, destination, "PARETO",
+                    searchAlgorithm.findParetoPaths(graph, source, destination, null));
+        }
+        for (Integer maxStops : searchConfig.getPrecompute().getStopBounds()) {
+            for (String criteria : STOP_BOUND_CRITERIA) {
+                List<FlightPath> paths = searchAlgorithm.findPaths(graph, source, destination, k, criteria,
+                        SearchConfig.Engine.DIJKSTRA, maxStops);
+                cacheService.cacheRoute(batch, source, destination,
+                        RedisFlightCacheService.criteriaKey(criteria, maxStops), paths);
+            }
+        }
+    }
+
+    /**
+     * Applies a single cancellation, as {@link #applyFlightCancellations}.
+     * @return the city pairs that were recomputed
+     */
+    public Set<RouteKey> applyFlightCancellation(UUID flightId) {
+        return applyFlightCancellations(List.of(flightId));
+    }
+
+    /**
+     * Applies cancellations as edge removals on the in-memory graph: one graph copy and one
+     * publish for the whole batch, then one recompute of the union of the city pairs whose
+     * cached paths used any of the flights, as named by the flights' reverse index sets in Redis.
+     * Removing edges cannot improve any path, so the cached top-K of every other pair is still
+     * exact and is left untouched. A running precompute is not waited for; it replays the
+     * removals into its own generation once that is activated.
+     * @return the city pairs that were recomputed
+     */
+    public Set<RouteKey> applyFlightCancellations(Collection<UUID> flightIds) {
+        synchronized (graphLock) {
+            GraphSnapshot current = snapshot.get();
+            if (current == null) {
+                throw new SearchServiceException(SearchServiceError.GRAPH_NOT_INITIALIZED);
+            }
+
+            List<UUID> removed = new ArrayList<>();
+            for (UUID flightId : flightIds) {
+                if (current.graph().getEdgeIndex(flightId) >= 0) {
+                    removed.add(flightId);
+                }
+            }
+            if (removed.isEmpty()) {
+                logger.info("Cancelled flights {} are not part of the graph, nothing to update", flightIds);
+                return Collections.emptySet();
+            }
+            // Published before the entries are invalidated: on-demand write-backs rely on this order
+            GraphSnapshot published = publish(current.graph().withChanges(removed, List.of()));
+
+            long start = System.nanoTime();
+            CacheWriteStats writeStats = new CacheWriteStats();
+            Set<RouteKey> affectedRoutes = refreshRemovedFlights(published.graph(), removed, writeStats);
+
+            saveSnapshot();
+            logger.info("Removed {} flights from graph (version {}) and recomputed {} affected city pairs in {} ms ({})",
+                       removed.size(), published.version(), affectedRoutes.size(),
+                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), writeStats);
+            return affectedRoutes;
         }
     }
 
-    public FlightGraph getCostGraph() {
-        return costGraph;
+    /**
+     * Invalidates the removed flights' entries in the active generation and recomputes the
+     * union of the affected city pairs on the graph without them, in one write batch.
+     */
+    private Set<RouteKey> refreshRemovedFlights(FlightGraph graph, Collection<UUID> removed, CacheWriteStats writeStats) {
+        int k = searchConfig.getPrecompute().getPathsPerRoute();
+        Set<RouteKey> affectedRoutes = new LinkedHashSet<>();
+        try (RedisFlightCacheService.WriteBatch batch = cacheService.newWriteBatch(true, writeStats)) {
+            for (UUID flightId : removed) {
+                affectedRoutes.addAll(cacheService.invalidateFlight(batch, flightId));
+            }
+            for (RouteKey route : affectedRoutes) {
+                List<FlightPath> cheapestPaths = searchAlgorithm.findCheapestPaths(graph, route.source(), route.destination(), k);
+                List<FlightPath> fastestPaths = searchAlgorithm.findFastestPaths(graph, route.source(), route.destination(), k);
+                cacheService.refreshRoute(batch, route.source(), route.destination(), cheapestPaths, fastestPaths);
+                cacheAdditionalCriteria(graph, batch, route.source(), route.destination(), k);
+            }
+        }
+        return affectedRoutes;
+    }
+
+    /**
+     * Cancellations published while a precompute ran were applied to the generation active at
+     * the time. The new generation was computed on the graph from before them, so once it is
+     * active they are applied to it as well.
+     */
+    private void replayRemovals(FlightGraph precomputed) {
+        synchronized (graphLock) {
+            FlightGraph current = snapshot.get().graph();
+            if (current == precomputed) {
+                return;
+            }
+            // Only cancellations run concurrently with a precompute, so the graphs differ by removals
+            List<UUID> removed = new ArrayList<>();
+            for (int e = 0; e < precomputed.getEdgeCount(); e++) {
+                UUID flightId = precomputed.getEdge(e).getFlightId();
+                if (current.getEdgeIndex(flightId) < 0) {
+                    removed.add(flightId);
+                }
+            }
+            if (removed.isEmpty()) {
+                return;
+            }
+            Set<RouteKey> affectedRoutes = refreshRemovedFlights(current, removed, new CacheWriteStats());
+            removed.forEach(nearCache::invalidateFlight);
+            logger.info("Replayed {} cancellations from during the precompute, recomputed {} city pairs",
+                       removed.size(), affectedRoutes.size());
+        }
+    }
+
+    /**
+     * Pre-computes one source airport against a range of destination ids, splitting the
+     * range while it is larger than the configured task size.
+     */
+    private class PrecomputeTask extends RecursiveAction {
+        private final FlightGraph graph;
+        private final long generation;
+        private final int source;
+        private final int fromDestination;
+        private final int toDestination;
+        private final SearchConfig.Precompute config;
+        private final PrecomputeProgress progress;
+
+        PrecomputeTask(FlightGraph graph, long generation, int source, int fromDestination, int toDestination,
+                       SearchConfig.Precompute config, PrecomputeProgress progress) {
+            this.graph = graph;
+            this.generation = generation;
+            this.source = source;
+            this.fromDestination = fromDestination;
+            this.toDestination = toDestination;
+            this.config = config;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (toDestination - fromDestination > Math.max(1, config.getDestinationsPerTask())) {
+                int middle = (fromDestination + toDestination) >>> 1;
+                invokeAll(new PrecomputeTask(graph, generation, source, fromDestination, middle, config, progress),
+                          new PrecomputeTask(graph, generation, source, middle, toDestination, config, progress));
+                return;
+            }
+
+            String sourceCode = graph.getCityCode(source);
+            // The generation is new, so plain SETs are enough; nothing is skipped or overwritten
+            try (RedisFlightCacheService.WriteBatch batch = cacheService.newWriteBatch(generation, true, progress.writeStats)) {
+                for (int destination = fromDestination; destination < toDestination; destination++) {
+                    if (destination != source) {
+                        preComputeRoute(graph, sourceCode, graph.getCityCode(destination),
+                                config.getPathsPerRoute(), batch, progress);
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to write pre-computed paths for source {}", sourceCode, e);
+            }
+        }
+    }
+
+    private static class PrecomputeProgress {
+        private final long totalPairs;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong completedPairs = new AtomicLong();
+        private final AtomicLong cachedPairs = new AtomicLong();
+        private final CacheWriteStats writeStats = new CacheWriteStats();
+
+        PrecomputeProgress(long totalPairs) {
+            this.totalPairs = totalPairs;
+        }
+
+        long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        void log() {
+            long completed = completedPairs.get();
+            long elapsed = elapsedMillis();
+            long etaSeconds = completed > 0 ? (elapsed * (totalPairs - completed) / completed) / 1000 : -1;
+            logger.info("Pre-compute progress: {}/{} pairs ({}%), {} pairs/s, {} cache keys/s, ETA {}s",
+                       completed, totalPairs, totalPairs > 0 ? completed * 100 / totalPairs : 100,
+                       elapsed > 0 ? completed * 1000 / elapsed : 0, writeStats.getKeysPerSecond(), etaSeconds);
+        }
+    }
+
+    /**
+     * Swaps in a fully built graph as the next version. Only called by the serialized writers.
+     */
+    private GraphSnapshot publish(FlightGraph graph) {
+        prepareLandmarks(graph);
+        synchronized (graphLock) {
+            return snapshot.updateAndGet(previous ->
+                    new GraphSnapshot(previous != null ? previous.version() + 1 : 1, graph, LocalDateTime.now()));
+        }
+    }
+
+    // Builds the ALT landmarks and the contraction hierarchy before the graph is visible, so no
+    // query pays for them
+    private void prepareLandmarks(FlightGraph graph) {
+        searchAlgorithm.prepareRoutes(graph);
+        if (searchConfig.getOnDemand().getEngine() == SearchConfig.Engine.ALT) {
+            searchAlgorithm.prepareLandmarks(graph);
+        }
+        if (searchConfig.getContraction().isEnabled()) {
+            searchAlgorithm.prepareHierarchy(graph);
+        }
+    }
+
+    /**
+     * @return the current snapshot, or null before the first build. Callers should read it once
+     *         per search and use that snapshot throughout.
+     */
+    public GraphSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return true once a graph is published, so searches can be answered (from the cache or on demand)
+     */
+    public boolean isReady() {
+        return snapshot.get() != null;
+    }
+
+    /**
+     * @return the inventory change sequence the graph reflects, or -1 if not known yet
+     */
+    public long getChangeWatermark() {
+        return changeWatermark;
+    }
+
+    public WarmupStatus getWarmupStatus() {
+        return warmup;
     }
 
-    public FlightGraph getDurationGraph() {
-        return durationGraph;
+    public FlightGraph getFlightGraph() {
+        GraphSnapshot current = snapshot.get();
+        return current != null ? current.graph() : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.fbs.search.service;
+
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.model.FlightEdge;
+import com.fbs.search.model.FlightGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the compiled flight graph to a local memory-mapped file so a restart can serve
+ * searches before inventory-service has answered.
+ *
+ * Layout (version 2, big-endian):
+ * <pre>
+ *   magic        4 bytes  "FBSG"
+ *   version      int
+ *   graphVersion long     snapshot version the graph was published as
+ *   generation   long     cache generation that was precomputed from this graph
+ *   savedAt      long     epoch millis (UTC)
+ *   checksum     long     CRC32 of the payload
+ *   edgeCount    int
+ *   payloadSize  int
+ *   payload, per edge in flight id order:
+ *     flightId   16 bytes
+ *     source, destination, flightNumber  length-prefixed UTF-8 (-1 for null)
+ *     cost       long     fixed-point paise
+ *     duration   int      minutes
+ *     departure  short    minutes after midnight (-1 if absent)
+ *     arrival    short    minutes after midnight (-1 if absent)
+ * </pre>
+ * Edges are written in flight id order, so the checksum fingerprints the network content
+ * independently of the order inventory returned the flights in. Version 1 files end each edge
+ * after its duration and are still read, with flights loaded without times.
+ */
+@Component
+public class GraphSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphSnapshotStore.class);
+
+    static final int MAGIC = 0x46425347; // "FBSG"
+    static final int VERSION = 2;
+    // Version 1 files carry no departure and arrival times and are still readable
+    private static final int UNTIMED_VERSION = 1;
+    private static final short NO_TIME = -1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8 + 4 + 4;
+
+    @Autowired
+    private SearchConfig searchConfig;
+
+    public boolean isEnabled() {
+        return searchConfig.getSnapshot().isEnabled();
+    }
+
+    /**
+     * Writes the graph to a temporary file and moves it over the snapshot, so a crash mid-write
+     * never leaves a torn file behind.
+     */
+    public void save(FlightGraph graph, long graphVersion, long generation) {
+        Path path = Paths.get(searchConfig.getSnapshot().getPath());
+        long start = System.nanoTime();
+        try {
+            byte[] payload = encodePayload(graph);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + payload.length);
+                buffer.putInt(MAGIC)
+                      .putInt(VERSION)
+                      .putLong(graphVersion)
+                      .putLong(generation)
+                      .putLong(System.currentTimeMillis())
+                      .putLong(crc.getValue())
+                      .putInt(graph.getEdgeCount())
+                      .putInt(payload.length)
+                      .put(payload);
+                buffer.force();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            logger.info("Saved graph snapshot v{} (generation {}, {} flights, {} bytes) to {} in {} ms",
+                       graphVersion, generation, graph.getEdgeCount(), HEADER_SIZE + payload.length, path,
+                       (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            // The snapshot only speeds up the next start; the service keeps running without it
+            logger.warn("Failed to save graph snapshot to {}", path, e);
+        }
+    }
+
+    /**
+     * @return the stored graph, or empty if there is no snapshot or it fails validation
+     */
+    public Optional<StoredGraph> load() {
+        Path path = Paths.get(searchConfig.getSnapshot().getPath());
+        if (!Files.isRegularFile(path)) {
+            logger.info("No graph snapshot at {}", path);
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            StoredGraph stored = decode(buffer);
+            logger.info("Loaded graph snapshot v{} (generation {}, {} flights, saved {}) from {} in {} ms",
+                       stored.graphVersion(), stored.generation(), stored.graph().getEdgeCount(), stored.savedAt(),
+                       path, (System.nanoTime() - start) / 1_000_000);
+            return Optional.of(stored);
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            logger.warn("Ignoring unreadable graph snapshot {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return checksum of the graph's content, comparable with {@link StoredGraph#checksum()}
+     */
+    public long fingerprint(FlightGraph graph) {
+        CRC32 crc = new CRC32();
+        crc.update(encodePayload(graph));
+        return crc.getValue();
+    }
+
+    static StoredGraph decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a graph snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION && version != UNTIMED_VERSION) {
+            throw new IllegalArgumentException("Unsupported graph snapshot version " + version);
+        }
+        long graphVersion = buffer.getLong();
+        long generation = buffer.getLong();
+        long savedAt = buffer.getLong();
+        long checksum = buffer.getLong();
+        int edgeCount = buffer.getInt();
+        int payloadSize = buffer.getInt();
+        if (payloadSize != buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated graph snapshot");
+        }
+
+        ByteBuffer payload = buffer.slice();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if (crc.getValue() != checksum) {
+            throw new IllegalArgumentException("Graph snapshot checksum mismatch");
+        }
+
+        FlightGraph.Builder builder = FlightGraph.builder();
+        for (int i = 0; i < edgeCount; i++) {
+            UUID flightId = new UUID(payload.getLong(), payload.getLong());
+            String source = readString(payload);
+            String destination = readString(payload);
+            String flightNumber = readString(payload);
+            long cost = payload.getLong();
+            int duration = payload.getInt();
+            LocalTime departureTime = version == VERSION ? readTime(payload) : null;
+            LocalTime arrivalTime = version == VERSION ? readTime(payload) : null;
+            builder.addEdge(new FlightEdge(flightId, source, destination, FlightGraph.fromFixedCost(cost),
+                    duration, flightNumber, departureTime, arrivalTime));
+        }
+
+        LocalDateTime savedAtTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(savedAt), ZoneOffset.UTC);
+        return new StoredGraph(graphVersion, generation, checksum, savedAtTime, builder.build());
+    }
+
+    static byte[] encodePayload(FlightGraph graph) {
+        FlightEdge[] edges = new FlightEdge[graph.getEdgeCount()];
+        for (int e = 0; e < edges.length; e++) {
+            edges[e] = graph.getEdge(e);
+        }
+        Arrays.sort(edges, Comparator.comparing(FlightEdge::getFlightId));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(edges.length * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (FlightEdge edge : edges) {
+                out.writeLong(edge.getFlightId().getMostSignificantBits());
+                out.writeLong(edge.getFlightId().getLeastSignificantBits());
+                writeString(out, edge.getSource());
+                writeString(out, edge.getDestination());
+                writeString(out, edge.getFlightNumber());
+                out.writeLong(FlightGraph.toFixedCost(edge.getCost()));
+                out.writeInt(edge.getDuration());
+                writeTime(out, edge.getDepartureTime());
+                writeTime(out, edge.getArrivalTime());
+            }
+        } catch (IOException e) {
+            // Writes to a byte array cannot fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalTime time) throws IOException {
+        out.writeShort(time != null ? time.getHour() * 60 + time.getMinute() : NO_TIME);
+    }
+
+    private static LocalTime readTime(ByteBuffer buffer) {
+        short minutes = buffer.getShort();
+        return minutes == NO_TIME ? null : LocalTime.of(minutes / 60, minutes % 60);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A graph read back from the snapshot file.
+     *
+     * @param graphVersion snapshot version the graph was published as
+     * @param generation   cache generation precomputed from this graph, 0 if none
+     * @param checksum     content fingerprint, see {@link #fingerprint(FlightGraph)}
+     */
+    public record StoredGraph(long graphVersion, long generation, long checksum, LocalDateTime savedAt,
+                              FlightGraph graph) {}
+}
@@ -0,0 +1,107 @@
+package com.fbs.search.service;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over dense int ids with {@code long} keys and decrease-key.
+ * Every id appears at most once; {@link #clear()} only touches the ids still queued,
+ * so one instance can be reused across searches without reallocation.
+ */
+class IndexedMinHeap {
+
+    private int[] heap = new int[0];
+    private int[] positions = new int[0];
+    private long[] keys = new long[0];
+    private int size;
+
+    void ensureCapacity(int capacity) {
+        if (positions.length >= capacity) return;
+        int oldLength = positions.length;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldLength, capacity, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int id) {
+        return positions[id] >= 0;
+    }
+
+    long peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Inserts {@code id} or lowers its key. Keys that are not smaller than the current one are ignored.
+     */
+    void insertOrDecrease(int id, long key) {
+        int position = positions[id];
+        if (position < 0) {
+            position = size++;
+            heap[position] = id;
+            positions[id] = position;
+        } else if (key >= keys[id]) {
+            return;
+        }
+        keys[id] = key;
+        siftUp(position);
+    }
+
+    int poll() {
+        int top = heap[0];
+        positions[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+        long key = keys[id];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentId = heap[parent];
+            if (keys[parentId] <= key) break;
+            heap[position] = parentId;
+            positions[parentId] = position;
+            position = parent;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        long key = keys[id];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childId = heap[child];
+            if (key <= keys[childId]) break;
+            heap[position] = childId;
+            positions[childId] = position;
+            position = child;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+}
@@ -0,0 +1,157 @@
+package com.fbs.search.service;
+
+import com.fbs.search.model.FlightGraph;
+
+import java.util.Arrays;
+
+/**
+ * Landmark distances for goal-directed (ALT) search on one graph.
+ *
+ * For every landmark {@code L} and both weights the exact distances {@code d(L, v)} and
+ * {@code d(v, L)} to every airport are stored. By the triangle inequality
+ * {@code d(L, t) - d(L, v)} and {@code d(v, L) - d(t, L)} are lower bounds of {@code d(v, t)};
+ * the largest of them is a consistent A* potential. Banning edges or airports can only make
+ * paths longer, so the bounds stay valid for Yen's spur searches.
+ */
+class Landmarks {
+
+    static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private static final int COST = 0;
+    private static final int DURATION = 1;
+
+    private final int cityCount;
+    private final int[] landmarkCities;
+    // [weight][landmark * cityCount + city]
+    private final long[][] fromLandmark = new long[2][];
+    private final long[][] toLandmark = new long[2][];
+
+    private Landmarks(int cityCount, int[] landmarkCities) {
+        this.cityCount = cityCount;
+        this.landmarkCities = landmarkCities;
+        for (int weight = COST; weight <= DURATION; weight++) {
+            fromLandmark[weight] = new long[landmarkCities.length * cityCount];
+            toLandmark[weight] = new long[landmarkCities.length * cityCount];
+        }
+    }
+
+    /**
+     * Picks up to {@code count} landmarks by farthest-point selection, starting from the
+     * best-connected airport, and computes their distances for both weights.
+     */
+    static Landmarks compute(FlightGraph graph, int count) {
+        int cityCount = graph.getCityCount();
+        int landmarkCount = Math.max(0, Math.min(count, cityCount));
+        int[] chosen = new int[landmarkCount];
+        Landmarks landmarks = new Landmarks(cityCount, chosen);
+        if (landmarkCount == 0) {
+            return landmarks;
+        }
+
+        IndexedMinHeap heap = new IndexedMinHeap();
+        heap.ensureCapacity(cityCount);
+        // Smallest cost distance from any chosen landmark, in either direction
+        long[] separation = new long[cityCount];
+        Arrays.fill(separation, UNREACHABLE);
+
+        int next = 0;
+        for (int city = 1; city < cityCount; city++) {
+            int degree = graph.getEdgeEnd(city) - graph.getEdgeStart(city) + graph.getInEdgeEnd(city) - graph.getInEdgeStart(city);
+            int best = graph.getEdgeEnd(next) - graph.getEdgeStart(next) + graph.getInEdgeEnd(next) - graph.getInEdgeStart(next);
+            if (degree > best) {
+                next = city;
+            }
+        }
+
+        for (int l = 0; l < landmarkCount; l++) {
+            chosen[l] = next;
+            int offset = l * cityCount;
+            for (int weight = COST; weight <= DURATION; weight++) {
+                fullDijkstra(graph, heap, next, weight == COST, true, landmarks.fromLandmark[weight], offset);
+                fullDijkstra(graph, heap, next, weight == COST, false, landmarks.toLandmark[weight], offset);
+            }
+
+            // The next landmark is the airport worst covered so far; airports no landmark
+            // reaches in either direction are picked first
+            long farthest = -1;
+            for (int city = 0; city < cityCount; city++) {
+                long distance = Math.min(landmarks.fromLandmark[COST][offset + city], landmarks.toLandmark[COST][offset + city]);
+                separation[city] = Math.min(separation[city], distance);
+                if (separation[city] > farthest) {
+                    farthest = separation[city];
+                    next = city;
+                }
+            }
+        }
+        return landmarks;
+    }
+
+    int size() {
+        return landmarkCities.length;
+    }
+
+    int getLandmarkCity(int landmark) {
+        return landmarkCities[landmark];
+    }
+
+    /**
+     * @return a lower bound of the distance from {@code city} to {@code target}, or
+     *         {@link #UNREACHABLE} if the landmarks prove {@code target} cannot be reached
+     */
+    long lowerBound(int city, int target, boolean byCost) {
+        long[] from = fromLandmark[byCost ? COST : DURATION];
+        long[] to = toLandmark[byCost ? COST : DURATION];
+        long bound = 0L;
+        for (int offset = 0; offset < from.length; offset += cityCount) {
+            long landmarkToTarget = from[offset + target];
+            long landmarkToCity = from[offset + city];
+            if (landmarkToCity != UNREACHABLE) {
+                if (landmarkToTarget == UNREACHABLE) {
+                    // L reaches the city but not the target, so the city cannot reach the target
+                    return UNREACHABLE;
+                }
+                bound = Math.max(bound, landmarkToTarget - landmarkToCity);
+            }
+
+            long cityToLandmark = to[offset + city];
+            long targetToLandmark = to[offset + target];
+            if (targetToLandmark != UNREACHABLE) {
+                if (cityToLandmark == UNREACHABLE) {
+                    // The target reaches L but the city does not, so the city cannot reach the target
+                    return UNREACHABLE;
+                }
+                bound = Math.max(bound, cityToLandmark - targetToLandmark);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Single-source distances from {@code root} over outgoing edges ({@code forward}) or to
+     * {@code root} over incoming edges, written to {@code distances[offset + city]}.
+     */
+    private static void fullDijkstra(FlightGraph graph, IndexedMinHeap heap, int root, boolean byCost,
+                                     boolean forward, long[] distances, int offset) {
+        int cityCount = graph.getCityCount();
+        Arrays.fill(distances, offset, offset + cityCount, UNREACHABLE);
+        heap.clear();
+
+        distances[offset + root] = 0L;
+        heap.insertOrDecrease(root, 0L);
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            long currentDistance = distances[offset + current];
+            int start = forward ? graph.getEdgeStart(current) : graph.getInEdgeStart(current);
+            int end = forward ? graph.getEdgeEnd(current) : graph.getInEdgeEnd(current);
+            for (int i = start; i < end; i++) {
+                int edge = forward ? i : graph.getInEdge(i);
+                int neighbor = forward ? graph.getEdgeTarget(edge) : graph.getEdgeSource(edge);
+                long newDistance = currentDistance + graph.getEdgeWeight(edge, byCost);
+                if (newDistance < distances[offset + neighbor]) {
+                    distances[offset + neighbor] = newDistance;
+                    heap.insertOrDecrease(neighbor, newDistance);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.fbs.search.service;
+
+import com.fbs.search.model.FlightGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Multi-label search for the Pareto front of (cost, duration) between two airports.
+ *
+ * Every airport keeps a bag of labels none of which is dominated by another; a label is
+ * dominated when some other label is no more expensive and no slower (and, for hop-bounded
+ * searches, uses no more legs). Labels are settled in (cost, duration) order, so a settled
+ * label is never dominated later, and a new label is dropped as soon as a label at its
+ * airport or at the destination dominates it. Dominated paths therefore never spread, which
+ * keeps the bags small, and cycles are pruned by the label they started from.
+ */
+class ParetoSearch {
+
+    static final int NO_LABEL = -1;
+
+    private final FlightGraph graph;
+    private final int destinationId;
+    private final int maxLegs;
+    private final int maxLabelsPerCity;
+    private final EdgeFilter filter;
+    private final boolean bounded;
+    private boolean truncated;
+
+    private int[] labelCities = new int[64];
+    private long[] labelCosts = new long[64];
+    private long[] labelDurations = new long[64];
+    private int[] labelLegs = new int[64];
+    private int[] labelEdges = new int[64];
+    private int[] labelParents = new int[64];
+    private boolean[] labelDead = new boolean[64];
+    private int labelCount;
+
+    private final int[][] bags;
+    private final int[] bagSizes;
+
+    private ParetoSearch(FlightGraph graph, int destinationId, int maxLegs, int maxLabelsPerCity, EdgeFilter filter) {
+        this.graph = graph;
+        this.destinationId = destinationId;
+        this.maxLegs = maxLegs;
+        this.maxLabelsPerCity = Math.max(1, maxLabelsPerCity);
+        this.filter = filter;
+        this.bounded = maxLegs != Integer.MAX_VALUE;
+        this.bags = new int[graph.getCityCount()][];
+        this.bagSizes = new int[graph.getCityCount()];
+    }
+
+    /**
+     * @param maxLegs          largest number of legs, or {@link Integer#MAX_VALUE} for no bound
+     * @param maxLabelsPerCity labels an airport may hold; further non-dominated labels are
+     *                         dropped, so the front may miss points once the limit is hit
+     * @param filter           flights and airports the paths may use, or null for all
+     */
+    static Front front(FlightGraph graph, int sourceId, int destinationId, int maxLegs, int maxLabelsPerCity,
+                       EdgeFilter filter) {
+        if (sourceId == destinationId) {
+            return new Front(List.of(new int[0]), false);
+        }
+        return new ParetoSearch(graph, destinationId, maxLegs, maxLabelsPerCity, filter).run(sourceId);
+    }
+
+    /**
+     * @param paths     edge indices of the Pareto-optimal paths, cheapest first
+     * @param truncated true if an airport hit the label limit, so points may be missing
+     */
+    record Front(List<int[]> paths, boolean truncated) {}
+
+    private Front run(int sourceId) {
+        PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) -> {
+            int byCost = Long.compare(labelCosts[a], labelCosts[b]);
+            return byCost != 0 ? byCost : Long.compare(labelDurations[a], labelDurations[b]);
+        });
+        queue.add(addLabel(sourceId, 0L, 0L, 0, SearchContext.NO_EDGE, NO_LABEL));
+
+        List<Integer> settled = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            int label = queue.poll();
+            if (labelDead[label]) continue;
+
+            int current = labelCities[label];
+            if (current == destinationId) {
+                settled.add(label);
+                continue;
+            }
+            if (labelLegs[label] >= maxLegs) continue;
+
+            for (int e = graph.getEdgeStart(current); e < graph.getEdgeEnd(current); e++) {
+                if (filter != null && !filter.allowsEdge(e)) continue;
+                int neighbor = graph.getEdgeTarget(e);
+                long cost = labelCosts[label] + graph.getEdgeCost(e);
+                long duration = labelDurations[label] + graph.getEdgeDuration(e);
+                int legs = labelLegs[label] + 1;
+
+                if (isDominated(destinationId, cost, duration, legs) || isDominated(neighbor, cost, duration, legs)) {
+                    continue;
+                }
+                removeDominated(neighbor, cost, duration, legs);
+                if (bagSizes[neighbor] >= maxLabelsPerCity) {
+                    truncated = true;
+                    continue;
+                }
+                queue.add(addLabel(neighbor, cost, duration, legs, e, label));
+            }
+        }
+
+        List<int[]> front = new ArrayList<>(settled.size());
+        for (int label : settled) {
+            // With a stop bound an equal-weight path with fewer legs may settle after its twin
+            if (!labelDead[label]) {
+                front.add(path(label));
+            }
+        }
+        return new Front(front, truncated);
+    }
+
+    private boolean dominates(int label, long cost, long duration, int legs) {
+        return labelCosts[label] <= cost && labelDurations[label] <= duration && (!bounded || labelLegs[label] <= legs);
+    }
+
+    private boolean isDominated(int city, long cost, long duration, int legs) {
+        int[] bag = bags[city];
+        for (int i = 0; i < bagSizes[city]; i++) {
+            if (dominates(bag[i], cost, duration, legs)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the labels of {@code city} that the given label dominates.
+     */
+    private void removeDominated(int city, long cost, long duration, int legs) {
+        int[] bag = bags[city];
+        int kept = 0;
+        for (int i = 0; i < bagSizes[city]; i++) {
+            int label = bag[i];
+            if (labelCosts[label] >= cost && labelDurations[label] >= duration && (!bounded || labelLegs[label] >= legs)) {
+                labelDead[label] = true;
+            } else {
+                bag[kept++] = label;
+            }
+        }
+        bagSizes[city] = kept;
+    }
+
+    private int addLabel(int city, long cost, long duration, int legs, int viaEdge, int parent) {
+        if (labelCount == labelCities.length) {
+            int capacity = labelCount * 2;
+            labelCities = Arrays.copyOf(labelCities, capacity);
+            labelCosts = Arrays.copyOf(labelCosts, capacity);
+            labelDurations = Arrays.copyOf(labelDurations, capacity);
+            labelLegs = Arrays.copyOf(labelLegs, capacity);
+            labelEdges = Arrays.copyOf(labelEdges, capacity);
+            labelParents = Arrays.copyOf(labelParents, capacity);
+            labelDead = Arrays.copyOf(labelDead, capacity);
+        }
+        int label = labelCount++;
+        labelCities[label] = city;
+        labelCosts[label] = cost;
+        labelDurations[label] = duration;
+        labelLegs[label] = legs;
+        labelEdges[label] = viaEdge;
+        labelParents[label] = parent;
+
+        if (bags[city] == null) {
+            bags[city] = new int[4];
+        } else if (bagSizes[city] == bags[city].length) {
+            bags[city] = Arrays.copyOf(bags[city], bagSizes[city] * 2);
+        }
+        bags[city][bagSizes[city]++] = label;
+        return label;
+    }
+
+    private int[] path(int label) {
+        int[] edges = new int[labelLegs[label]];
+        for (int l = label; labelParents[l] != NO_LABEL; l = labelParents[l]) {
+            edges[labelLegs[l] - 1] = labelEdges[l];
+        }
+        return edges;
+    }
+}
@@ -1,22 +1,42 @@
 package com.fbs.search.service;
 
+import com.fbs.search.config.SearchConfig;
 import com.fbs.search.exception.SearchServiceError;
 import com.fbs.search.exception.SearchServiceException;
 import com.fbs.search.model.CachedFlightPath;
 import com.fbs.search.model.CachedSearchResult;
+import com.fbs.search.model.FlightEdge;
 import com.fbs.search.model.FlightPath;
+import com.fbs.search.model.RouteKey;
+import com.fbs.search.util.SearchResultCodec;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -25,105 +45,395 @@ public class RedisFlightCacheService {
 
     private static final Logger logger = LoggerFactory.getLogger(RedisFlightCacheService.class);
     private static final int CACHE_TTL_DAYS = 180; // 6 months
+    private static final int BOOKING_HORIZON_DAYS = 180;
+    private static final Expiration DEFAULT_EXPIRATION = Expiration.from(CACHE_TTL_DAYS, TimeUnit.DAYS);
+
+    // Every key of a precompute generation lives under "g<generation>:"; readers follow the pointer key
+    static final String GENERATION_POINTER_KEY = "search:generation";
+    private static final String GENERATION_SEQUENCE_KEY = "search:generation:seq";
+
+    // Reverse index sets (per generation): cache keys per flight and per route, kept for as long as the
+    // entries they point at. The registry set names every index set so a generation can be reclaimed.
+    private static final String FLIGHT_INDEX_PREFIX = "idx:flight:";
+    private static final String ROUTE_INDEX_PREFIX = "idx:route:";
+    private static final String INDEX_REGISTRY = "idx:sets";
 
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private RedisTemplate<String, byte[]> binaryRedisTemplate;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    public void cacheSearchResults(String source, String destination, LocalDate date,
-                                 String criteria, List<FlightPath> paths) {
-        try {
-            String key = buildKey(source, destination, date, criteria);
+    @Autowired
+    private SearchConfig searchConfig;
 
-            // Check if key already exists - skip if it does
-            if (redisTemplate.hasKey(key)) {
-                logger.debug("Key already exists, skipping: {}", key);
-                return;
-            }
+    private final ScheduledExecutorService reclaimExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "generation-reclaim");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long activeGeneration;
+    private volatile long generationReadAtNanos;
+    private volatile boolean generationRead;
 
-            // Convert FlightPath to CachedFlightPath
-            List<CachedFlightPath> cachedPaths = paths.stream()
-                    .map(this::convertToCachedPath)
-                    .collect(Collectors.toList());
+    /**
+     * Allocates an id for a new precompute. Its keys are invisible to readers until it is activated.
+     */
+    public long beginGeneration() {
+        Long generation = redisTemplate.opsForValue().increment(GENERATION_SEQUENCE_KEY);
+        if (generation == null) {
+            throw new SearchServiceException(SearchServiceError.CACHE_SERVICE_ERROR);
+        }
+        logger.info("Started cache generation {}", generation);
+        return generation;
+    }
 
-            CachedSearchResult result = new CachedSearchResult(cachedPaths);
-            String jsonValue = objectMapper.writeValueAsString(result);
+    /**
+     * Atomically points readers at a fully written generation and schedules the one it replaces
+     * for reclaim once readers that resolved the old pointer have finished.
+     */
+    public void activateGeneration(long generation) {
+        String previous = redisTemplate.opsForValue().getAndSet(GENERATION_POINTER_KEY, Long.toString(generation));
+        activeGeneration = generation;
+        generationReadAtNanos = System.nanoTime();
+        generationRead = true;
+        logger.info("Activated cache generation {} (previous: {})", generation, previous);
 
-            redisTemplate.opsForValue().set(key, jsonValue, CACHE_TTL_DAYS, TimeUnit.DAYS);
+        if (previous != null && Long.parseLong(previous) != generation) {
+            scheduleReclaim(Long.parseLong(previous));
+        }
+    }
 
-            logger.debug("Cached {} paths for key: {}", paths.size(), key);
+    /**
+     * Drops a generation that was never activated, e.g. after a failed precompute.
+     */
+    public void abandonGeneration(long generation) {
+        logger.warn("Abandoning cache generation {}", generation);
+        scheduleReclaim(generation);
+    }
 
-        } catch (JsonProcessingException e) {
-            logger.error("Error serializing search results for cache: {}", e.getMessage());
-            throw new SearchServiceException(SearchServiceError.CACHE_SERVICE_ERROR);
+    /**
+     * @return the generation readers should use, re-read from the pointer key at most once per
+     *         configured refresh interval (0 before the first precompute is activated)
+     */
+    public long getActiveGeneration() {
+        long refreshNanos = TimeUnit.MILLISECONDS.toNanos(searchConfig.getCache().getGenerationRefreshMillis());
+        if (!generationRead || System.nanoTime() - generationReadAtNanos >= refreshNanos) {
+            String pointer = redisTemplate.opsForValue().get(GENERATION_POINTER_KEY);
+            activeGeneration = pointer != null ? Long.parseLong(pointer) : 0L;
+            generationReadAtNanos = System.nanoTime();
+            generationRead = true;
+        }
+        return activeGeneration;
+    }
+
+    private void scheduleReclaim(long generation) {
+        long delaySeconds = searchConfig.getCache().getGenerationReclaimDelaySeconds();
+        reclaimExecutor.schedule(() -> reclaimGeneration(generation), delaySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Deletes a generation through its index registry: every index set names the cache keys it
+     * covers, so no KEYS or SCAN is needed. Keys are UNLINKed so Redis frees them off its main thread.
+     */
+    void reclaimGeneration(long generation) {
+        try {
+            String registryKey = generationPrefix(generation) + INDEX_REGISTRY;
+            Set<String> indexKeys = redisTemplate.opsForSet().members(registryKey);
+            int batchSize = Math.max(1, searchConfig.getCache().getWriteBatchSize());
+            long reclaimed = 0;
+
+            List<String> pending = new ArrayList<>(batchSize);
+            if (indexKeys != null) {
+                for (String indexKey : indexKeys) {
+                    Set<String> cacheKeys = redisTemplate.opsForSet().members(indexKey);
+                    if (cacheKeys != null) {
+                        for (String cacheKey : cacheKeys) {
+                            pending.add(cacheKey);
+                            if (pending.size() >= batchSize) {
+                                reclaimed += unlink(pending);
+                            }
+                        }
+                    }
+                    pending.add(indexKey);
+                    if (pending.size() >= batchSize) {
+                        reclaimed += unlink(pending);
+                    }
+                }
+            }
+            pending.add(registryKey);
+            reclaimed += unlink(pending);
+            logger.info("Reclaimed cache generation {} ({} keys)", generation, reclaimed);
         } catch (Exception e) {
-            logger.error("Error caching search results", e);
-            throw new SearchServiceException(SearchServiceError.CACHE_SERVICE_ERROR);
+            // Leftover keys still expire with the cache TTL
+            logger.error("Error reclaiming cache generation {}", generation, e);
+        }
+    }
+
+    private long unlink(List<String> keys) {
+        Long unlinked = redisTemplate.unlink(keys);
+        keys.clear();
+        return unlinked != null ? unlinked : 0L;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reclaimExecutor.shutdownNow();
+    }
+
+    /**
+     * Caches results computed on a cache miss. Written with SET NX so a precompute or refresh
+     * that landed in the meantime is kept. Skipped until the first precompute is activated:
+     * keys of generation 0 would never be reclaimed.
+     */
+    public void cacheSearchResultsIfAbsent(String source, String destination, String criteria, List<FlightPath> paths) {
+        long generation = getActiveGeneration();
+        if (generation == 0) {
+            logger.debug("No active cache generation, not caching on-demand paths for {}:{}", source, destination);
+            return;
         }
+        try (WriteBatch batch = newWriteBatch(generation, false, new CacheWriteStats())) {
+            String key = buildRouteKey(batch.generation, source, destination, criteria);
+            batch.add(key, serialize(paths));
+            indexEntry(batch, source, destination, key, paths);
+            logger.debug("Cached {} on-demand paths for key: {}", paths.size(), key);
+        }
+    }
+
+    /**
+     * Deletes one route entry of the active generation, e.g. an on-demand write-back that may
+     * have landed after an invalidation of one of its flights.
+     */
+    public void evictRoute(String source, String destination, String criteria) {
+        String key = buildRouteKey(getActiveGeneration(), source, destination, criteria);
+        redisTemplate.delete(key);
+        logger.debug("Evicted cache entry: {}", key);
     }
 
-    public Optional<CachedSearchResult> getCachedResults(String source, String destination, 
-                                                       LocalDate date, String criteria) {
+    /**
+     * Resolves a route's results from its entry in the active generation. The schedule is
+     * time-of-day only, so one entry serves every date in the booking horizon; callers check
+     * the date against {@link #isWithinBookingHorizon} first.
+     */
+    public Optional<CachedSearchResult> getCachedResults(String source, String destination, String criteria) {
         try {
-            String key = buildKey(source, destination, date, criteria);
-            String jsonValue = redisTemplate.opsForValue().get(key);
-            
-            if (jsonValue != null) {
-                CachedSearchResult result = objectMapper.readValue(jsonValue, CachedSearchResult.class);
-                logger.debug("Cache hit for key: {}", key);
+            String routeKey = buildRouteKey(getActiveGeneration(), source, destination, criteria);
+            byte[] payload = binaryRedisTemplate.opsForValue().get(routeKey);
+
+            if (payload != null) {
+                CachedSearchResult result = deserialize(payload);
+                logger.debug("Cache hit for key: {}", routeKey);
                 return Optional.of(result);
             }
-            
-            logger.debug("Cache miss for key: {}", key);
+
+            logger.debug("Cache miss for key: {}", routeKey);
             return Optional.empty();
-            
-        } catch (JsonProcessingException e) {
+
+        } catch (IOException | IllegalArgumentException e) {
             logger.error("Error deserializing cached search results", e);
             return Optional.empty();
         }
     }
 
-    public void preComputeAndCacheAll(String source, String destination, List<FlightPath> cheapestPaths, 
-                                    List<FlightPath> fastestPaths) {
-        LocalDate startDate = LocalDate.now();
-        int skippedKeys = 0;
-        int newKeys = 0;
-        
-        // Cache for next 6 months only if paths exist
-        for (int days = 0; days < CACHE_TTL_DAYS; days++) {
-            LocalDate date = startDate.plusDays(days);
-            
-            // Only cache if paths exist
-            if (!cheapestPaths.isEmpty()) {
-                String cheapestKey = buildKey(source, destination, date, "CHEAPEST");
-                if (redisTemplate.hasKey(cheapestKey)) {
-                    skippedKeys++;
-                } else {
-                    cacheSearchResults(source, destination, date, "CHEAPEST", cheapestPaths);
-                    newKeys++;
-                }
+    public boolean isWithinBookingHorizon(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        return !date.isBefore(today) && date.isBefore(today.plusDays(BOOKING_HORIZON_DAYS));
+    }
+
+    /**
+     * Queues a route's results on a bulk write batch. The schedule is time-of-day only, so
+     * one entry per route and criteria serves every date in the booking horizon.
+     */
+    public void preComputeAndCacheAll(WriteBatch batch, String source, String destination,
+                                      List<FlightPath> cheapestPaths, List<FlightPath> fastestPaths) {
+        // Only cache if paths exist
+        if (!cheapestPaths.isEmpty()) {
+            String key = buildRouteKey(batch.generation, source, destination, "CHEAPEST");
+            batch.add(key, serialize(cheapestPaths));
+            indexEntry(batch, source, destination, key, cheapestPaths);
+        }
+        if (!fastestPaths.isEmpty()) {
+            String key = buildRouteKey(batch.generation, source, destination, "FASTEST");
+            batch.add(key, serialize(fastestPaths));
+            indexEntry(batch, source, destination, key, fastestPaths);
+        }
+    }
+
+    /**
+     * Queues one criteria's results for a route, e.g. a hop-bounded criteria key from
+     * {@link #criteriaKey(String, Integer)}. On an overwriting batch an empty result deletes
+     * the entry, as in {@link #refreshRoute}.
+     */
+    public void cacheRoute(WriteBatch batch, String source, String destination, String criteriaKey,
+                           List<FlightPath> paths) {
+        String key = buildRouteKey(batch.generation, source, destination, criteriaKey);
+        if (!paths.isEmpty()) {
+            batch.add(key, serialize(paths));
+            indexEntry(batch, source, destination, key, paths);
+        } else if (batch.overwrite) {
+            batch.delete(key);
+        }
+    }
+
+    /**
+     * The criteria segment of a cache key: the criteria itself, suffixed with the stop bound
+     * for hop-bounded searches (e.g. CHEAPEST_MAX1).
+     */
+    public static String criteriaKey(String criteria, Integer maxStops) {
+        return maxStops == null ? criteria : criteria + "_MAX" + maxStops;
+    }
+
+    /**
+     * As {@link #criteriaKey(String, Integer)}, also suffixed with the earliest departure of
+     * timetable searches (e.g. EARLIEST_ARRIVAL_AFTER0830). Key segments never contain ':'.
+     */
+    public static String criteriaKey(String criteria, Integer maxStops, LocalTime departAfter) {
+        String key = criteriaKey(criteria, maxStops);
+        return departAfter == null ? key
+                : key + String.format("_AFTER%02d%02d", departAfter.getHour(), departAfter.getMinute());
+    }
+
+    /**
+     * As {@link #criteriaKey(String, Integer, LocalTime)}, suffixed with _ROUTINGS for searches
+     * that return one path per airport sequence.
+     */
+    public static String criteriaKey(String criteria, Integer maxStops, LocalTime departAfter,
+                                     boolean distinctRoutings) {
+        String key = criteriaKey(criteria, maxStops, departAfter);
+        return distinctRoutings ? key + "_ROUTINGS" : key;
+    }
+
+    /**
+     * Queues a recomputed route on an overwriting batch. Criteria that no longer have any
+     * path are deleted, so a disconnected route stops serving stale paths.
+     */
+    public void refreshRoute(WriteBatch batch, String source, String destination,
+                             List<FlightPath> cheapestPaths, List<FlightPath> fastestPaths) {
+        String cheapestKey = buildRouteKey(batch.generation, source, destination, "CHEAPEST");
+        String fastestKey = buildRouteKey(batch.generation, source, destination, "FASTEST");
+
+        if (cheapestPaths.isEmpty()) {
+            batch.delete(cheapestKey);
+        } else {
+            batch.add(cheapestKey, serialize(cheapestPaths));
+            indexEntry(batch, source, destination, cheapestKey, cheapestPaths);
+        }
+        if (fastestPaths.isEmpty()) {
+            batch.delete(fastestKey);
+        } else {
+            batch.add(fastestKey, serialize(fastestPaths));
+            indexEntry(batch, source, destination, fastestKey, fastestPaths);
+        }
+    }
+
+    /**
+     * Looks up the cache entries whose paths use the flight through its reverse index set and
+     * queues a delete for the index set itself. CHEAPEST and FASTEST route entries are left for
+     * the caller to recompute, so searches keep being served until the refresh lands; other
+     * criteria (FEWEST_STOPS, PARETO, EARLIEST_ARRIVAL, stop bounds) are deleted and the caller
+     * rewrites the precomputed ones, the rest are computed again on demand.
+     * The index is append-only between rebuilds, so it may name routes that no longer use the
+     * flight; those are recomputed to the same result.
+     * @return the city pairs that referenced the flight
+     */
+    public Set<RouteKey> invalidateFlight(WriteBatch batch, UUID flightId) {
+        String indexKey = generationPrefix(batch.generation) + FLIGHT_INDEX_PREFIX + flightId;
+        Set<String> cacheKeys = redisTemplate.opsForSet().members(indexKey);
+        if (cacheKeys == null || cacheKeys.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<RouteKey> routes = new LinkedHashSet<>();
+        for (String cacheKey : cacheKeys) {
+            // g<generation>:S:D:CRITERIA
+            String[] parts = cacheKey.split(":");
+            if (parts.length < 4) {
+                continue;
             }
-            if (!fastestPaths.isEmpty()) {
-                String fastestKey = buildKey(source, destination, date, "FASTEST");
-                if (redisTemplate.hasKey(fastestKey)) {
-                    skippedKeys++;
-                } else {
-                    cacheSearchResults(source, destination, date, "FASTEST", fastestPaths);
-                    newKeys++;
-                }
+            routes.add(new RouteKey(parts[1], parts[2]));
+            if (!parts[3].equals("CHEAPEST") && !parts[3].equals("FASTEST")) {
+                batch.delete(cacheKey);
             }
         }
-        
-        if (skippedKeys > 0) {
-            logger.debug("Pre-computed cache for {}:{} - New: {}, Skipped: {} (already existed)", 
-                        source, destination, newKeys, skippedKeys);
+        batch.delete(indexKey);
+        logger.debug("Flight {} referenced by {} cache entries on {} routes", flightId, cacheKeys.size(), routes.size());
+        return routes;
+    }
+
+    /**
+     * Records a cache entry in the route's index set and in the index set of every flight its
+     * paths use. The SADDs travel in the same pipeline as the entry itself.
+     */
+    private void indexEntry(WriteBatch batch, String source, String destination, String cacheKey,
+                            List<FlightPath> paths) {
+        String prefix = generationPrefix(batch.generation);
+        batch.index(prefix + ROUTE_INDEX_PREFIX + source + ":" + destination, cacheKey);
+        for (FlightPath path : paths) {
+            for (FlightEdge flight : path.getFlights()) {
+                batch.index(prefix + FLIGHT_INDEX_PREFIX + flight.getFlightId(), cacheKey);
+            }
+        }
+    }
+
+    /**
+     * Opens a bulk write batch on the active generation. Every refresh writes through this path.
+     * @param overwrite false writes with SET NX so existing keys are kept; true replaces them
+     */
+    public WriteBatch newWriteBatch(boolean overwrite, CacheWriteStats stats) {
+        return newWriteBatch(getActiveGeneration(), overwrite, stats);
+    }
+
+    /**
+     * Opens a bulk write batch on a given generation, e.g. one that a precompute is filling.
+     */
+    public WriteBatch newWriteBatch(long generation, boolean overwrite, CacheWriteStats stats) {
+        return new WriteBatch(generation, overwrite, stats, searchConfig.getCache().getWriteBatchSize());
+    }
+
+    /**
+     * Converts computed paths into the form stored in and served from the cache.
+     */
+    public CachedSearchResult toCachedResult(List<FlightPath> paths) {
+        // Convert FlightPath to CachedFlightPath
+        List<CachedFlightPath> cachedPaths = paths.stream()
+                .map(this::convertToCachedPath)
+                .collect(Collectors.toList());
+        return new CachedSearchResult(cachedPaths);
+    }
+
+    private byte[] serialize(List<FlightPath> paths) {
+        CachedSearchResult result = toCachedResult(paths);
+
+        if (searchConfig.getCache().getEncoding() == SearchConfig.Encoding.BINARY) {
+            return SearchResultCodec.encode(result);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing search results for cache: {}", e.getMessage());
+            throw new SearchServiceException(SearchServiceError.CACHE_SERVICE_ERROR);
         }
     }
 
-    private String buildKey(String source, String destination, LocalDate date, String criteria) {
-        return String.format("%s:%s:%s:%s", source, destination, date.toString(), criteria);
+    /**
+     * Decodes either format, so JSON entries written before the binary rollout stay readable.
+     */
+    private CachedSearchResult deserialize(byte[] payload) throws IOException {
+        if (SearchResultCodec.isBinary(payload)) {
+            return SearchResultCodec.decode(payload);
+        }
+        return objectMapper.readValue(payload, CachedSearchResult.class);
+    }
+
+    private static String generationPrefix(long generation) {
+        return "g" + generation + ":";
+    }
+
+    private String buildRouteKey(long generation, String source, String destination, String criteria) {
+        return generationPrefix(generation) + source + ":" + destination + ":" + criteria;
     }
 
     private CachedFlightPath convertToCachedPath(FlightPath flightPath) {
@@ -138,13 +448,133 @@ public class RedisFlightCacheService {
         );
     }
 
-    public void clearCache(String source, String destination) {
-        String pattern = source + ":" + destination + ":*";
-        redisTemplate.delete(redisTemplate.keys(pattern));
-        logger.info("Cleared cache for route: {}:{}", source, destination);
+    public long getCacheSize() {
+        Long size = redisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize());
+        return size != null ? size : 0L;
     }
 
-    public long getCacheSize() {
-        return redisTemplate.getConnectionFactory().getConnection().dbSize();
+    /**
+     * Buffers cache writes and sends them to Redis in pipelined batches with a single
+     * SET (NX) EX per key, instead of a synchronous check-then-set round trip per key.
+     * Reverse index members are coalesced per set and sent as one SADD + EXPIRE each.
+     * Not thread-safe; each worker uses its own batch.
+     */
+    public class WriteBatch implements AutoCloseable {
+        private final long generation;
+        private final boolean overwrite;
+        private final CacheWriteStats stats;
+        private final int batchSize;
+        private final List<byte[]> keys;
+        private final List<byte[]> values;
+        private final List<Expiration> expirations;
+        private final Map<String, Set<String>> indexMembers = new LinkedHashMap<>();
+        private int indexCount;
+
+        private WriteBatch(long generation, boolean overwrite, CacheWriteStats stats, int batchSize) {
+            this.generation = generation;
+            this.overwrite = overwrite;
+            this.stats = stats;
+            this.batchSize = Math.max(1, batchSize);
+            this.keys = new ArrayList<>(this.batchSize);
+            this.values = new ArrayList<>(this.batchSize);
+            this.expirations = new ArrayList<>(this.batchSize);
+        }
+
+        public void add(String key, byte[] value) {
+            add(key, value, DEFAULT_EXPIRATION);
+        }
+
+        /**
+         * Queues a DEL in the same pipeline as the writes.
+         */
+        public void delete(String key) {
+            add(key, null, null);
+        }
+
+        private void add(String key, byte[] value, Expiration expiration) {
+            keys.add(key.getBytes(StandardCharsets.UTF_8));
+            values.add(value);
+            expirations.add(expiration);
+            flushIfFull();
+        }
+
+        private void index(String indexKey, String cacheKey) {
+            if (indexMembers.computeIfAbsent(indexKey, k -> new LinkedHashSet<>()).add(cacheKey)) {
+                indexCount++;
+            }
+            // Register the index set so the generation can be reclaimed without scanning
+            String registryKey = generationPrefix(generation) + INDEX_REGISTRY;
+            if (indexMembers.computeIfAbsent(registryKey, k -> new LinkedHashSet<>()).add(indexKey)) {
+                indexCount++;
+            }
+            flushIfFull();
+        }
+
+        private void flushIfFull() {
+            if (keys.size() + indexCount >= batchSize) {
+                flush();
+            }
+        }
+
+        public void flush() {
+            if (keys.isEmpty() && indexMembers.isEmpty()) return;
+
+            long start = System.nanoTime();
+            RedisStringCommands.SetOption option = overwrite
+                    ? RedisStringCommands.SetOption.upsert()
+                    : RedisStringCommands.SetOption.ifAbsent();
+            long bytes = 0;
+
+            try {
+                List<Object> results = binaryRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (int i = 0; i < keys.size(); i++) {
+                        if (values.get(i) == null) {
+                            connection.keyCommands().del(keys.get(i));
+                        } else {
+                            connection.stringCommands().set(keys.get(i), values.get(i), expirations.get(i), option);
+                        }
+                    }
+                    for (Map.Entry<String, Set<String>> entry : indexMembers.entrySet()) {
+                        byte[] indexKey = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                        byte[][] members = entry.getValue().stream()
+                                .map(member -> member.getBytes(StandardCharsets.UTF_8))
+                                .toArray(byte[][]::new);
+                        connection.setCommands().sAdd(indexKey, members);
+                        connection.keyCommands().expire(indexKey, DEFAULT_EXPIRATION.getExpirationTimeInSeconds());
+                    }
+                    return null;
+                });
+
+                int written = 0;
+                int deleted = 0;
+                // Index replies follow the key replies and are not counted as cache keys
+                for (int i = 0; i < keys.size(); i++) {
+                    if (values.get(i) == null) {
+                        deleted++;
+                    } else if (Boolean.TRUE.equals(results.get(i))) {
+                        written++;
+                    }
+                }
+                for (byte[] value : values) {
+                    bytes += value != null ? value.length : 0;
+                }
+                stats.recordBatch(written, keys.size() - written - deleted, deleted, bytes, System.nanoTime() - start);
+
+            } catch (Exception e) {
+                logger.error("Error writing batch of {} cache keys and {} index entries", keys.size(), indexCount, e);
+                throw new SearchServiceException(SearchServiceError.CACHE_SERVICE_ERROR);
+            } finally {
+                keys.clear();
+                values.clear();
+                expirations.clear();
+                indexMembers.clear();
+                indexCount = 0;
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
     }
 }
\ No newline at end of file
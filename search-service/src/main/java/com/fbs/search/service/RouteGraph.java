@@ -0,0 +1,120 @@
+package com.fbs.search.service;
+
+import com.fbs.search.model.FlightGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Airport-pair view of one graph for the K-shortest-path searches.
+ *
+ * Parallel flights between the same two airports collapse into one route edge, so Yen's
+ * algorithm enumerates routings instead of every combination of flight numbers. There is one
+ * collapsed graph per weight: its route edge is the pair's cheapest (or fastest) flight, and
+ * the pair's flights are kept sorted by that weight so concrete itineraries can be expanded
+ * from the best routings only. A network without parallel flights is its own collapsed graph.
+ *
+ * Instances are cached against the original graph in a weak map, so they never reference it:
+ * methods that need it take it as an argument.
+ */
+class RouteGraph {
+
+    // Both null without parallel flights
+    private final FlightGraph byCost;
+    private final FlightGraph byDuration;
+    // Original edge indices of each route edge's flights, best first; null without parallel flights
+    private final int[][] costAlternatives;
+    private final int[][] durationAlternatives;
+
+    private RouteGraph(FlightGraph byCost, FlightGraph byDuration,
+                       int[][] costAlternatives, int[][] durationAlternatives) {
+        this.byCost = byCost;
+        this.byDuration = byDuration;
+        this.costAlternatives = costAlternatives;
+        this.durationAlternatives = durationAlternatives;
+    }
+
+    static RouteGraph build(FlightGraph graph) {
+        List<int[]> pairs = new ArrayList<>();
+        boolean parallel = false;
+        for (int city = 0; city < graph.getCityCount(); city++) {
+            Map<Integer, List<Integer>> byTarget = new LinkedHashMap<>();
+            for (int e = graph.getEdgeStart(city); e < graph.getEdgeEnd(city); e++) {
+                byTarget.computeIfAbsent(graph.getEdgeTarget(e), t -> new ArrayList<>()).add(e);
+            }
+            for (List<Integer> flights : byTarget.values()) {
+                pairs.add(flights.stream().mapToInt(Integer::intValue).toArray());
+                parallel |= flights.size() > 1;
+            }
+        }
+        if (!parallel) {
+            return new RouteGraph(null, null, null, null);
+        }
+
+        Comparator<Integer> cheapest = Comparator.<Integer>comparingLong(graph::getEdgeCost)
+                .thenComparingInt(graph::getEdgeDuration);
+        Comparator<Integer> fastest = Comparator.<Integer>comparingInt(graph::getEdgeDuration)
+                .thenComparingLong(graph::getEdgeCost);
+        int[][] costSorted = sortEach(pairs, cheapest);
+        int[][] durationSorted = sortEach(pairs, fastest);
+        FlightGraph byCost = collapse(graph, costSorted);
+        FlightGraph byDuration = collapse(graph, durationSorted);
+        return new RouteGraph(byCost, byDuration, alternatives(graph, byCost, costSorted),
+                alternatives(graph, byDuration, durationSorted));
+    }
+
+    /**
+     * @param graph the original graph this instance was built from
+     * @return the collapsed graph for a weight; its edges are real flights of the original graph
+     */
+    FlightGraph collapsed(FlightGraph graph, boolean byCost) {
+        if (!isCollapsed()) {
+            return graph;
+        }
+        return byCost ? this.byCost : this.byDuration;
+    }
+
+    /**
+     * @return edge indices in the original graph of the flights a route edge of
+     *         {@link #collapsed(boolean)} stands for, best first
+     */
+    int[] alternatives(boolean byCost, int routeEdge) {
+        int[][] alternatives = byCost ? costAlternatives : durationAlternatives;
+        if (alternatives == null) {
+            return new int[] {routeEdge};
+        }
+        return alternatives[routeEdge];
+    }
+
+    boolean isCollapsed() {
+        return costAlternatives != null;
+    }
+
+    private static int[][] sortEach(List<int[]> pairs, Comparator<Integer> order) {
+        int[][] sorted = new int[pairs.size()][];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = Arrays.stream(pairs.get(i)).boxed().sorted(order).mapToInt(Integer::intValue).toArray();
+        }
+        return sorted;
+    }
+
+    private static FlightGraph collapse(FlightGraph graph, int[][] sortedPairs) {
+        FlightGraph.Builder builder = FlightGraph.builder();
+        for (int[] flights : sortedPairs) {
+            builder.addEdge(graph.getEdge(flights[0]));
+        }
+        return builder.build();
+    }
+
+    private static int[][] alternatives(FlightGraph graph, FlightGraph collapsed, int[][] sortedPairs) {
+        int[][] alternatives = new int[collapsed.getEdgeCount()][];
+        for (int[] flights : sortedPairs) {
+            alternatives[collapsed.getEdgeIndex(graph.getEdge(flights[0]).getFlightId())] = flights;
+        }
+        return alternatives;
+    }
+}
@@ -0,0 +1,212 @@
+package com.fbs.search.service;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread scratch state for shortest-path searches.
+ *
+ * Distance and predecessor slots are only valid when their stamp matches the current
+ * generation, so starting a new search is O(1) instead of refilling arrays sized to the
+ * whole network. Banned edges and airports (used by Yen's spur searches) are stamped the
+ * same way with their own generation, so they survive {@link #prepare(int)}; a query-time
+ * {@link EdgeFilter} adds standing bans until the next {@link #prepareBans}. Bidirectional
+ * searches keep their backward side in {@link #reverse()} and check bans on this context.
+ * Hop-bounded searches additionally keep one label per airport and layer, appended to
+ * growable arrays so a layer's labels are contiguous and only reached airports cost memory.
+ */
+class SearchContext {
+
+    static final int NO_EDGE = -1;
+    static final int NO_LABEL = -1;
+
+    final IndexedMinHeap heap = new IndexedMinHeap();
+
+    private long[] distances = new long[0];
+    private int[] predecessorEdges = new int[0];
+    private int[] reachedStamps = new int[0];
+    private int[] settledStamps = new int[0];
+    private int generation;
+
+    private int[] bannedEdgeStamps = new int[0];
+    private int[] bannedCityStamps = new int[0];
+    private int banGeneration;
+    private EdgeFilter filter;
+
+    private int[] labelCities = new int[16];
+    private long[] labelDistances = new long[16];
+    private int[] labelEdges = new int[16];
+    private int[] labelParents = new int[16];
+    private int labelCount;
+    private int[] layerLabels = new int[0];
+    private int[] layerStamps = new int[0];
+    private int layerGeneration;
+
+    private SearchContext reverse;
+
+    /**
+     * Scratch state for the backward side of a bidirectional search, created on first use.
+     */
+    SearchContext reverse() {
+        if (reverse == null) {
+            reverse = new SearchContext();
+        }
+        return reverse;
+    }
+
+    /**
+     * Resets the context for a search over a graph with {@code cityCount} airports.
+     */
+    void prepare(int cityCount) {
+        if (distances.length < cityCount) {
+            distances = new long[cityCount];
+            predecessorEdges = new int[cityCount];
+            reachedStamps = new int[cityCount];
+            settledStamps = new int[cityCount];
+            generation = 0;
+        }
+        heap.ensureCapacity(cityCount);
+        heap.clear();
+
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamps, 0);
+            Arrays.fill(settledStamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Sizes the ban tables for a graph and lifts all bans.
+     */
+    void prepareBans(int cityCount, int edgeCount) {
+        if (bannedCityStamps.length < cityCount || bannedEdgeStamps.length < edgeCount) {
+            bannedCityStamps = new int[Math.max(cityCount, bannedCityStamps.length)];
+            bannedEdgeStamps = new int[Math.max(edgeCount, bannedEdgeStamps.length)];
+            banGeneration = 0;
+        }
+        clearBans();
+        filter = null;
+    }
+
+    /**
+     * Bans every edge and airport the filter rejects, on top of the stamped bans.
+     */
+    void setFilter(EdgeFilter filter) {
+        this.filter = filter;
+    }
+
+    void clearBans() {
+        if (++banGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(bannedEdgeStamps, 0);
+            Arrays.fill(bannedCityStamps, 0);
+            banGeneration = 1;
+        }
+    }
+
+    void banEdge(int edge) {
+        bannedEdgeStamps[edge] = banGeneration;
+    }
+
+    void banCity(int city) {
+        bannedCityStamps[city] = banGeneration;
+    }
+
+    boolean isEdgeBanned(int edge) {
+        return bannedEdgeStamps[edge] == banGeneration || (filter != null && !filter.allowsEdge(edge));
+    }
+
+    boolean isCityBanned(int city) {
+        return bannedCityStamps[city] == banGeneration || (filter != null && !filter.allowsCity(city));
+    }
+
+    /**
+     * Drops all labels and starts the first layer of a hop-bounded search.
+     */
+    void prepareLabels(int cityCount) {
+        if (layerStamps.length < cityCount) {
+            layerLabels = new int[cityCount];
+            layerStamps = new int[cityCount];
+            layerGeneration = 0;
+        }
+        labelCount = 0;
+        nextLayer();
+    }
+
+    /**
+     * Starts a new layer; labels added from now on belong to it.
+     */
+    void nextLayer() {
+        if (++layerGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(layerStamps, 0);
+            layerGeneration = 1;
+        }
+    }
+
+    /**
+     * Adds or improves the current layer's label for {@code city}.
+     * @return the label's index
+     */
+    int label(int city, long distance, int viaEdge, int parent) {
+        int label;
+        if (layerStamps[city] == layerGeneration) {
+            label = layerLabels[city];
+        } else {
+            if (labelCount == labelCities.length) {
+                int capacity = labelCount * 2;
+                labelCities = Arrays.copyOf(labelCities, capacity);
+                labelDistances = Arrays.copyOf(labelDistances, capacity);
+                labelEdges = Arrays.copyOf(labelEdges, capacity);
+                labelParents = Arrays.copyOf(labelParents, capacity);
+            }
+            label = labelCount++;
+            labelCities[label] = city;
+            layerLabels[city] = label;
+            layerStamps[city] = layerGeneration;
+        }
+        labelDistances[label] = distance;
+        labelEdges[label] = viaEdge;
+        labelParents[label] = parent;
+        return label;
+    }
+
+    int labelCount() {
+        return labelCount;
+    }
+
+    int labelCity(int label) {
+        return labelCities[label];
+    }
+
+    long labelDistance(int label) {
+        return labelDistances[label];
+    }
+
+    int labelEdge(int label) {
+        return labelEdges[label];
+    }
+
+    int labelParent(int label) {
+        return labelParents[label];
+    }
+
+    long distance(int city) {
+        return reachedStamps[city] == generation ? distances[city] : Long.MAX_VALUE;
+    }
+
+    int predecessorEdge(int city) {
+        return predecessorEdges[city];
+    }
+
+    void reach(int city, long distance, int viaEdge) {
+        distances[city] = distance;
+        predecessorEdges[city] = viaEdge;
+        reachedStamps[city] = generation;
+    }
+
+    boolean isSettled(int city) {
+        return settledStamps[city] == generation;
+    }
+
+    void settle(int city) {
+        settledStamps[city] = generation;
+    }
+}
@@ -0,0 +1,93 @@
+package com.fbs.search.service;
+
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.model.CachedSearchResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-heap cache of decoded search results in front of Redis, so hot routes skip
+ * both the Redis round trip and deserialisation. Entries are evicted by size and TTL and
+ * invalidated on flight events. Cached results are date independent, so entries are keyed by
+ * route and criteria and one entry serves every travel date.
+ */
+@Service
+public class SearchNearCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchNearCache.class);
+
+    private final boolean enabled;
+    private final Cache<Key, CachedSearchResult> cache;
+
+    public SearchNearCache(SearchConfig searchConfig) {
+        SearchConfig.NearCache config = searchConfig.getNearCache();
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(Duration.ofSeconds(config.getTtlSeconds()))
+                .recordStats()
+                .build();
+        logger.info("Search near cache {} (maxEntries={}, ttl={}s)",
+                   enabled ? "enabled" : "disabled", config.getMaxEntries(), config.getTtlSeconds());
+    }
+
+    /**
+     * Returns the cached result, or loads it and caches it if the loader finds one.
+     * Absent results are not cached so a later precompute or refresh is seen immediately.
+     */
+    public Optional<CachedSearchResult> get(String source, String destination, String criteria,
+                                            Supplier<Optional<CachedSearchResult>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Key key = new Key(source, destination, criteria);
+        CachedSearchResult cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<CachedSearchResult> loaded = loader.get();
+        loaded.ifPresent(result -> cache.put(key, result));
+        return loaded;
+    }
+
+    /**
+     * Drops every entry with a path that uses the flight. Works from the entries themselves,
+     * so each replica invalidates its own near cache whichever replica refreshed Redis.
+     */
+    public void invalidateFlight(UUID flightId) {
+        cache.asMap().values().removeIf(result -> result.getPaths() != null && result.getPaths().stream()
+                .anyMatch(path -> path.getFlights() != null && path.getFlights().contains(flightId)));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        logger.debug("Search near cache invalidated");
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private record Key(String source, String destination, String criteria) {}
+}
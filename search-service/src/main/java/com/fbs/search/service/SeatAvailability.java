@@ -0,0 +1,114 @@
+package com.fbs.search.service;
+
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import com.fbs.search.model.FlightGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live seats-left counter per flight, used to drop cached paths a party cannot book.
+ *
+ * Cached paths are computed from the schedule alone and outlive many bookings, so the counters
+ * are kept apart from them: the full flight load and the change feed seed them, and inventory's
+ * SEATS_CHANGED events keep them current between syncs. Counters are advisory; a flight with no
+ * counter is assumed bookable and inventory's reservation stays the final check.
+ */
+@Service
+public class SeatAvailability {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatAvailability.class);
+
+    private final Map<UUID, Integer> seats = new ConcurrentHashMap<>();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong filteredPaths = new AtomicLong();
+
+    /**
+     * Records a flight's seats left; a null count (unknown) leaves the counter as it was.
+     */
+    public void update(UUID flightId, Integer availableSeats) {
+        if (flightId == null || availableSeats == null) {
+            return;
+        }
+        seats.put(flightId, availableSeats);
+        updates.incrementAndGet();
+    }
+
+    public void remove(UUID flightId) {
+        seats.remove(flightId);
+    }
+
+    /**
+     * Drops the counters of flights no longer in the graph, after a full load.
+     */
+    public void retain(FlightGraph graph) {
+        seats.keySet().removeIf(flightId -> graph.getEdgeIndex(flightId) < 0);
+    }
+
+    /**
+     * @return seats left on the flight, or null if it has no counter
+     */
+    public Integer get(UUID flightId) {
+        return seats.get(flightId);
+    }
+
+    /**
+     * Keeps the paths whose every leg has at least {@code passengers} seats left, in their
+     * original order. Each distinct flight of the result is looked up once, however many paths
+     * share it.
+     * @return the result itself if every path is bookable, otherwise a filtered copy
+     */
+    public CachedSearchResult filter(CachedSearchResult result, int passengers) {
+        if (result.getPaths() == null || seats.isEmpty()) {
+            return result;
+        }
+
+        Map<UUID, Boolean> bookable = new HashMap<>();
+        List<CachedFlightPath> kept = new ArrayList<>(result.getPaths().size());
+        for (CachedFlightPath path : result.getPaths()) {
+            boolean allLegs = true;
+            for (UUID flightId : path.getFlights()) {
+                if (!bookable.computeIfAbsent(flightId, id -> hasSeats(id, passengers))) {
+                    allLegs = false;
+                    break;
+                }
+            }
+            if (allLegs) {
+                kept.add(path);
+            }
+        }
+
+        if (kept.size() == result.getPaths().size()) {
+            return result;
+        }
+        filteredPaths.addAndGet(result.getPaths().size() - kept.size());
+        logger.debug("Dropped {} of {} paths without {} seats", result.getPaths().size() - kept.size(),
+                    result.getPaths().size(), passengers);
+        CachedSearchResult filtered = new CachedSearchResult(kept);
+        filtered.setComputedAt(result.getComputedAt());
+        return filtered;
+    }
+
+    private boolean hasSeats(UUID flightId, int passengers) {
+        Integer available = seats.get(flightId);
+        return available == null || available >= passengers;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("flights", seats.size());
+        stats.put("updates", updates.get());
+        stats.put("filteredPaths", filteredPaths.get());
+        return stats;
+    }
+}
@@ -0,0 +1,227 @@
+package com.fbs.search.service;
+
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.model.FlightGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The daily schedule of one graph as an array of connections sorted by departure, for
+ * earliest-arrival queries by connection scan.
+ *
+ * A query walks the connections once in departure order, day after day over the horizon,
+ * and boards a connection if its departure airport was reached at least the airport's
+ * minimum connection time earlier (the origin needs none). The scan is a linear pass over
+ * two flat arrays and stops at the first departure after the best arrival found so far.
+ * Hop-bounded queries repeat the scan once per leg, each round boarding only from the
+ * arrivals of the previous one. Flights without a departure time are not part of it.
+ *
+ * Instances are cached against their graph in a weak map, so queries take the graph as an
+ * argument instead of holding it.
+ */
+class Timetable {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    private final int[] connections;
+    private final int[] departures;
+    private final int[] minConnection;
+    private final int horizonDays;
+
+    private Timetable(int[] connections, int[] departures, int[] minConnection, int horizonDays) {
+        this.connections = connections;
+        this.departures = departures;
+        this.minConnection = minConnection;
+        this.horizonDays = horizonDays;
+    }
+
+    static Timetable build(FlightGraph graph, SearchConfig.Timetable config) {
+        int timed = 0;
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            if (graph.getEdgeDeparture(e) != FlightGraph.NO_DEPARTURE) {
+                timed++;
+            }
+        }
+
+        // Counting sort by departure minute
+        int[] offsets = new int[MINUTES_PER_DAY + 1];
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            if (graph.getEdgeDeparture(e) != FlightGraph.NO_DEPARTURE) {
+                offsets[graph.getEdgeDeparture(e) + 1]++;
+            }
+        }
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            offsets[minute + 1] += offsets[minute];
+        }
+        int[] connections = new int[timed];
+        int[] departures = new int[timed];
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            int departure = graph.getEdgeDeparture(e);
+            if (departure != FlightGraph.NO_DEPARTURE) {
+                int slot = offsets[departure]++;
+                connections[slot] = e;
+                departures[slot] = departure;
+            }
+        }
+
+        int[] minConnection = new int[graph.getCityCount()];
+        for (int city = 0; city < minConnection.length; city++) {
+            minConnection[city] = Math.max(0, config.resolveMinConnectionMinutes(graph.getCityCode(city)));
+        }
+        return new Timetable(connections, departures, minConnection, Math.max(1, config.getHorizonDays()));
+    }
+
+    int size() {
+        return connections.length;
+    }
+
+    /**
+     * An itinerary with absolute times in minutes after midnight of the search date.
+     */
+    record Journey(int[] edges, int departure, int arrival) {
+        int elapsedMinutes() {
+            return arrival - departure;
+        }
+    }
+
+    /**
+     * Non-dominated itineraries leaving at or after {@code departAfter} on the search date:
+     * each one departs later than the one before and arrives later too. An itinerary that
+     * arrives no earlier than one departing later is dropped.
+     * @param graph       the graph this timetable was built from
+     * @param departAfter minutes after midnight, below {@link #MINUTES_PER_DAY}
+     * @param maxLegs     largest number of legs, or {@link Integer#MAX_VALUE} for no bound
+     * @param filter      flights and airports the itineraries may use, or null for all
+     */
+    List<Journey> options(FlightGraph graph, int sourceId, int destinationId, int departAfter, int maxLegs, int count, EdgeFilter filter) {
+        List<Journey> result = new ArrayList<>();
+        int earliest = departAfter;
+        // Each scan either adds an option or replaces the last one with a later departure
+        for (int scans = 0; result.size() < count && earliest < MINUTES_PER_DAY && scans < count * 4; scans++) {
+            Journey journey = earliestArrival(graph, sourceId, destinationId, earliest, maxLegs, filter);
+            if (journey == null) {
+                break;
+            }
+            if (!result.isEmpty() && result.get(result.size() - 1).arrival() >= journey.arrival()) {
+                result.remove(result.size() - 1);
+            }
+            result.add(journey);
+            earliest = journey.departure() + 1;
+        }
+        return result;
+    }
+
+    /**
+     * @return the itinerary arriving first among those leaving the origin at or after
+     *         {@code departAfter}, or null if the destination cannot be reached in the horizon
+     */
+    Journey earliestArrival(FlightGraph graph, int sourceId, int destinationId, int departAfter, int maxLegs, EdgeFilter filter) {
+        if (sourceId == destinationId) {
+            return null;
+        }
+        int cityCount = graph.getCityCount();
+        boolean bounded = maxLegs != Integer.MAX_VALUE;
+        int rounds = bounded ? maxLegs : 1;
+
+        // Unbounded scans use one array, so a connection can board from arrivals of the same
+        // pass; bounded rounds board only from the previous round's arrivals
+        int[][] arrivals = new int[rounds + 1][];
+        int[][] inEdges = new int[rounds + 1][];
+        int[][] inDepartures = new int[rounds + 1][];
+        arrivals[0] = new int[cityCount];
+        Arrays.fill(arrivals[0], NEVER);
+        arrivals[0][sourceId] = departAfter;
+        inEdges[0] = new int[cityCount];
+        inDepartures[0] = new int[cityCount];
+
+        int round = 0;
+        for (int r = 1; r <= rounds; r++) {
+            int[] previous = arrivals[r - 1];
+            int[] arrival = bounded ? previous.clone() : previous;
+            int[] inEdge = bounded ? inEdges[r - 1].clone() : inEdges[0];
+            int[] inDeparture = bounded ? inDepartures[r - 1].clone() : inDepartures[0];
+            arrivals[r] = arrival;
+            inEdges[r] = inEdge;
+            inDepartures[r] = inDeparture;
+
+            boolean improved = scan(graph, previous, arrival, inEdge, inDeparture, sourceId, destinationId,
+                    departAfter, filter);
+            round = r;
+            if (!improved) {
+                break;
+            }
+        }
+
+        if (arrivals[round][destinationId] == NEVER) {
+            return null;
+        }
+        List<Integer> edges = new ArrayList<>();
+        int departure = departAfter;
+        int city = destinationId;
+        for (int r = round; city != sourceId; r = bounded ? r - 1 : r) {
+            int edge = inEdges[r][city];
+            edges.add(edge);
+            departure = inDepartures[r][city];
+            city = graph.getEdgeSource(edge);
+        }
+
+        int[] path = new int[edges.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = edges.get(path.length - 1 - i);
+        }
+        return new Journey(path, departure, arrivals[round][destinationId]);
+    }
+
+    /**
+     * One pass over the connections from {@code departAfter} to the end of the horizon.
+     * @return true if any arrival improved
+     */
+    private boolean scan(FlightGraph graph, int[] boardFrom, int[] arrival, int[] inEdge, int[] inDeparture,
+                         int sourceId, int destinationId, int departAfter, EdgeFilter filter) {
+        boolean improved = false;
+        int startDay = departAfter / MINUTES_PER_DAY;
+        int first = firstDepartureAtOrAfter(departAfter % MINUTES_PER_DAY);
+
+        for (int day = startDay; day < horizonDays; day++) {
+            for (int i = day == startDay ? first : 0; i < connections.length; i++) {
+                int departure = day * MINUTES_PER_DAY + departures[i];
+                if (departure >= arrival[destinationId]) {
+                    return improved;
+                }
+                int edge = connections[i];
+                int from = graph.getEdgeSource(edge);
+                if (boardFrom[from] == NEVER || (filter != null && !filter.allowsEdge(edge))) continue;
+
+                int ready = from == sourceId ? boardFrom[from] : boardFrom[from] + minConnection[from];
+                if (ready > departure) continue;
+
+                int to = graph.getEdgeTarget(edge);
+                int arrives = departure + graph.getEdgeDuration(edge);
+                if (arrives < arrival[to]) {
+                    arrival[to] = arrives;
+                    inEdge[to] = edge;
+                    inDeparture[to] = departure;
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    private int firstDepartureAtOrAfter(int minute) {
+        int low = 0;
+        int high = departures.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departures[mid] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
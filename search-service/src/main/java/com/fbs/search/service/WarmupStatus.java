@@ -0,0 +1,81 @@
+package com.fbs.search.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Phase and progress of the most recent graph warm-up (startup build, snapshot restore,
+ * reconcile or rebuild), as reported by the health endpoints.
+ */
+public class WarmupStatus {
+
+    public enum Phase {
+        STARTING,
+        RESTORE,
+        FETCH,
+        BUILD,
+        PRECOMPUTE,
+        PUBLISH,
+        READY,
+        FAILED
+    }
+
+    private static final LongSupplier NO_PROGRESS = () -> 0L;
+
+    private volatile Phase phase = Phase.STARTING;
+    private volatile LocalDateTime phaseStartedAt = LocalDateTime.now();
+    private volatile long phaseStartedNanos = System.nanoTime();
+    private volatile long total;
+    private volatile LongSupplier completed = NO_PROGRESS;
+    private volatile String lastError;
+
+    void enter(Phase phase) {
+        enter(phase, 0, NO_PROGRESS);
+    }
+
+    /**
+     * @param total     units of work in this phase (e.g. city pairs), 0 if not known up front
+     * @param completed reads the units finished so far
+     */
+    void enter(Phase phase, long total, LongSupplier completed) {
+        this.total = total;
+        this.completed = completed;
+        this.phaseStartedAt = LocalDateTime.now();
+        this.phaseStartedNanos = System.nanoTime();
+        this.phase = phase;
+        if (phase == Phase.READY) {
+            lastError = null;
+        }
+    }
+
+    void fail(String error) {
+        lastError = error;
+        enter(Phase.FAILED);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public Map<String, Object> toMap() {
+        long done = completed.getAsLong();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("phase", phase);
+        result.put("phaseStartedAt", phaseStartedAt);
+        result.put("phaseElapsedMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - phaseStartedNanos));
+        if (total > 0) {
+            result.put("completed", done);
+            result.put("total", total);
+            result.put("percent", done * 100 / total);
+        } else if (done > 0) {
+            result.put("completed", done);
+        }
+        if (lastError != null) {
+            result.put("lastError", lastError);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package com.fbs.search.util;
+
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders a cached Pareto front by a user's weighting of cost against duration. The front is
+ * computed and cached once; ranking happens per request, so any weighting is served without
+ * recomputing it.
+ */
+public class ParetoRanking {
+
+    private ParetoRanking() {
+        // Utility class
+    }
+
+    /**
+     * Scores each path as {@code costWeight * cost / cheapest + (1 - costWeight) * duration / fastest},
+     * so both criteria count relative to the best the front offers, and returns the paths
+     * lowest score first. The cached result is left untouched.
+     * @param costWeight weight of cost between 0 (duration only) and 1 (cost only)
+     */
+    public static CachedSearchResult rank(CachedSearchResult result, double costWeight) {
+        List<CachedFlightPath> paths = result.getPaths();
+        if (paths == null || paths.size() < 2) {
+            return result;
+        }
+
+        double cheapest = paths.stream().mapToDouble(path -> path.getCost().doubleValue()).min().orElse(1);
+        double fastest = paths.stream().mapToDouble(CachedFlightPath::getDuration).min().orElse(1);
+        double costScale = cheapest > 0 ? cheapest : 1;
+        double durationScale = fastest > 0 ? fastest : 1;
+
+        Comparator<CachedFlightPath> byScore = Comparator.comparingDouble(path ->
+                costWeight * path.getCost().doubleValue() / costScale
+                        + (1 - costWeight) * path.getDuration() / durationScale);
+        CachedSearchResult ranked = new CachedSearchResult(paths.stream().sorted(byScore).toList());
+        ranked.setComputedAt(result.getComputedAt());
+        return ranked;
+    }
+}
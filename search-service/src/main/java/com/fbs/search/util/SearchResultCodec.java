@@ -0,0 +1,205 @@
+package com.fbs.search.util;
+
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import com.fbs.search.model.FlightGraph;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Versioned binary encoding of {@link CachedSearchResult} for Redis.
+ *
+ * Layout (version 1):
+ * <pre>
+ *   magic      2 bytes  0xFB 0x5C
+ *   version    1 byte
+ *   computedAt varlong  epoch millis (UTC), zig-zag encoded
+ *   pathCount  varint
+ *   per path:
+ *     cost     varlong  fixed-point paise, zig-zag encoded
+ *     duration varint   minutes
+ *     legs     varint
+ *     flights  16 bytes per leg (UUID most/least significant bits, big-endian)
+ * </pre>
+ * JSON payloads never start with the magic bytes, so old entries can be told apart during rollout.
+ */
+public final class SearchResultCodec {
+
+    public static final byte MAGIC_0 = (byte) 0xFB;
+    public static final byte MAGIC_1 = (byte) 0x5C;
+    public static final byte VERSION = 1;
+
+    private SearchResultCodec() {
+        // Utility class
+    }
+
+    /**
+     * @return true if the payload carries the binary header (as opposed to legacy JSON)
+     */
+    public static boolean isBinary(byte[] payload) {
+        return payload != null && payload.length >= 3 && payload[0] == MAGIC_0 && payload[1] == MAGIC_1;
+    }
+
+    public static byte[] encode(CachedSearchResult result) {
+        List<CachedFlightPath> paths = result.getPaths() != null ? result.getPaths() : List.of();
+
+        int legs = 0;
+        for (CachedFlightPath path : paths) {
+            legs += path.getFlights().size();
+        }
+        Writer writer = new Writer(16 + paths.size() * 24 + legs * 16);
+
+        writer.writeByte(MAGIC_0);
+        writer.writeByte(MAGIC_1);
+        writer.writeByte(VERSION);
+        LocalDateTime computedAt = result.getComputedAt();
+        writer.writeVarLong(zigZag(computedAt != null ? computedAt.toInstant(ZoneOffset.UTC).toEpochMilli() : 0L));
+        writer.writeVarInt(paths.size());
+
+        for (CachedFlightPath path : paths) {
+            writer.writeVarLong(zigZag(FlightGraph.toFixedCost(path.getCost())));
+            writer.writeVarInt(path.getDuration());
+            writer.writeVarInt(path.getFlights().size());
+            for (UUID flightId : path.getFlights()) {
+                writer.writeLong(flightId.getMostSignificantBits());
+                writer.writeLong(flightId.getLeastSignificantBits());
+            }
+        }
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload is not a supported binary encoding
+     */
+    public static CachedSearchResult decode(byte[] payload) {
+        if (!isBinary(payload)) {
+            throw new IllegalArgumentException("Not a binary search result");
+        }
+        if (payload[2] != VERSION) {
+            throw new IllegalArgumentException("Unsupported search result version: " + payload[2]);
+        }
+
+        try {
+            Reader reader = new Reader(payload, 3);
+            long computedAtMillis = unZigZag(reader.readVarLong());
+            int pathCount = reader.readVarInt();
+
+            List<CachedFlightPath> paths = new ArrayList<>(pathCount);
+            for (int p = 0; p < pathCount; p++) {
+                long cost = unZigZag(reader.readVarLong());
+                int duration = reader.readVarInt();
+                int legs = reader.readVarInt();
+                UUID[] flights = new UUID[legs];
+                for (int i = 0; i < legs; i++) {
+                    flights[i] = new UUID(reader.readLong(), reader.readLong());
+                }
+                paths.add(new CachedFlightPath(FlightGraph.fromFixedCost(cost), duration, Arrays.asList(flights)));
+            }
+
+            CachedSearchResult result = new CachedSearchResult();
+            result.setPaths(paths);
+            result.setComputedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(computedAtMillis), ZoneOffset.UTC));
+            return result;
+
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated search result payload", e);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(byte value) {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readVarInt() {
+            long value = readVarLong();
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Varint out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+    }
+}
@@ -1,14 +1,32 @@
 package com.fbs.search.util;
 
+import com.fbs.search.config.SearchConfig;
 import com.fbs.search.exception.SearchServiceError;
 import com.fbs.search.exception.SearchServiceException;
+import com.fbs.search.model.SearchFilter;
 import org.springframework.util.StringUtils;
 
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
 /**
  * Utility class for validating search request parameters
  */
 public class ValidationUtil {
 
+    private static final int MAX_STOPS_LIMIT = 10;
+    private static final int MAX_PASSENGERS = 9;
+    private static final Pattern AIRLINE = Pattern.compile("[A-Z0-9]{2}");
+    private static final Pattern AIRPORT = Pattern.compile("[A-Z]{3}");
+    private static final Set<String> SEARCH_CRITERIA = Set.of("CHEAPEST", "FASTEST", "FEWEST_STOPS", "PARETO", "BALANCED",
+            "EARLIEST_ARRIVAL");
+
     private ValidationUtil() {
         // Utility class
     }
@@ -23,10 +41,157 @@ public class ValidationUtil {
             return "CHEAPEST"; //default value
         }
 
-        if (!criteria.equalsIgnoreCase("CHEAPEST") && !criteria.equalsIgnoreCase("FASTEST")) {
+        if (!SEARCH_CRITERIA.contains(criteria.toUpperCase())) {
             throw new SearchServiceException(SearchServiceError.INVALID_SEARCH_CRITERIA);
         }
 
         return criteria.toUpperCase();
     }
+
+    /**
+     * Validates the optional costWeight parameter used to rank a Pareto front
+     * @param costWeight Weight of cost against duration, or blank for none
+     * @return the weight, or null for none
+     * @throws SearchServiceException if costWeight is invalid
+     */
+    public static Double validateCostWeight(String costWeight) {
+        if (!StringUtils.hasText(costWeight)) {
+            return null;
+        }
+
+        try {
+            double value = Double.parseDouble(costWeight.trim());
+            if (!(value >= 0 && value <= 1)) {
+                throw new SearchServiceException(SearchServiceError.INVALID_COST_WEIGHT);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new SearchServiceException(SearchServiceError.INVALID_COST_WEIGHT);
+        }
+    }
+
+    /**
+     * Validates the optional maxStops parameter
+     * @param maxStops Largest number of intermediate stops, or blank for no bound
+     * @return the bound, or null for no bound
+     * @throws SearchServiceException if maxStops is invalid
+     */
+    public static Integer validateMaxStops(String maxStops) {
+        if (!StringUtils.hasText(maxStops)) {
+            return null;
+        }
+
+        try {
+            int value = Integer.parseInt(maxStops.trim());
+            if (value < 0 || value > MAX_STOPS_LIMIT) {
+                throw new SearchServiceException(SearchServiceError.INVALID_MAX_STOPS);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new SearchServiceException(SearchServiceError.INVALID_MAX_STOPS);
+        }
+    }
+
+    /**
+     * Validates the optional passengers parameter
+     * @param passengers Party size, or blank for one passenger
+     * @return the party size
+     * @throws SearchServiceException if passengers is invalid
+     */
+    public static int validatePassengers(String passengers) {
+        if (!StringUtils.hasText(passengers)) {
+            return 1;
+        }
+
+        try {
+            int value = Integer.parseInt(passengers.trim());
+            if (value < 1 || value > MAX_PASSENGERS) {
+                throw new SearchServiceException(SearchServiceError.INVALID_PASSENGERS);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new SearchServiceException(SearchServiceError.INVALID_PASSENGERS);
+        }
+    }
+
+    /**
+     * Validates the optional filter parameters
+     * @param airlines         Comma-separated airline designators (e.g. AI,6E), or blank for any
+     * @param excludeAirports  Comma-separated airport codes to avoid, or blank
+     * @param maxPrice         Largest total price, or blank
+     * @param maxDuration      Largest total duration in minutes, or blank
+     * @param departFrom       Earliest first departure as HH:mm, or blank
+     * @param departTo         Latest first departure as HH:mm, or blank
+     * @return the filter, {@link SearchFilter#NONE} if every parameter is blank
+     * @throws SearchServiceException if a parameter is invalid
+     */
+    public static SearchFilter validateFilter(String airlines, String excludeAirports, String maxPrice,
+                                              String maxDuration, String departFrom, String departTo) {
+        try {
+            SearchFilter filter = new SearchFilter(
+                    codes(airlines, AIRLINE),
+                    codes(excludeAirports, AIRPORT),
+                    StringUtils.hasText(maxPrice) ? new BigDecimal(maxPrice.trim()) : null,
+                    StringUtils.hasText(maxDuration) ? Integer.valueOf(maxDuration.trim()) : null,
+                    StringUtils.hasText(departFrom) ? LocalTime.parse(departFrom.trim()).withSecond(0).withNano(0) : null,
+                    StringUtils.hasText(departTo) ? LocalTime.parse(departTo.trim()).withSecond(0).withNano(0) : null);
+            if ((filter.maxPrice() != null && filter.maxPrice().signum() <= 0)
+                    || (filter.maxDuration() != null && filter.maxDuration() <= 0)) {
+                throw new SearchServiceException(SearchServiceError.INVALID_FILTER);
+            }
+            return filter.isEmpty() ? SearchFilter.NONE : filter;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new SearchServiceException(SearchServiceError.INVALID_FILTER);
+        }
+    }
+
+    private static Set<String> codes(String list, Pattern format) {
+        if (!StringUtils.hasText(list)) {
+            return Set.of();
+        }
+        Set<String> codes = Arrays.stream(list.split(","))
+                .map(code -> code.trim().toUpperCase(Locale.ROOT))
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toSet());
+        if (codes.stream().anyMatch(code -> !format.matcher(code).matches())) {
+            throw new SearchServiceException(SearchServiceError.INVALID_FILTER);
+        }
+        return codes;
+    }
+
+    /**
+     * Validates the optional departAfter parameter of EARLIEST_ARRIVAL searches
+     * @param departAfter Earliest departure time on the search date, or blank for midnight
+     * @return the time, or null for midnight
+     * @throws SearchServiceException if departAfter is invalid
+     */
+    public static LocalTime validateDepartAfter(String departAfter) {
+        if (!StringUtils.hasText(departAfter)) {
+            return null;
+        }
+
+        try {
+            return LocalTime.parse(departAfter.trim()).withSecond(0).withNano(0);
+        } catch (DateTimeParseException e) {
+            throw new SearchServiceException(SearchServiceError.INVALID_DEPART_AFTER);
+        }
+    }
+
+    /**
+     * Validates the optional search engine parameter
+     * @param engine The engine name, or blank for the configured default
+     * @return the engine, or null for the configured default
+     * @throws SearchServiceException if engine is invalid
+     */
+    public static SearchConfig.Engine validateSearchEngine(String engine) {
+        if (!StringUtils.hasText(engine)) {
+            return null;
+        }
+
+        try {
+            return SearchConfig.Engine.valueOf(engine.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new SearchServiceException(SearchServiceError.INVALID_SEARCH_ENGINE);
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package com.fbs.search.benchmark;
+
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import com.fbs.search.util.SearchResultCodec;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary codec with the Jackson JSON path used before it, on a typical
+ * cached result (10 paths of 1-3 legs).
+ *
+ * Run after {@code mvn -pl search-service -am test-compile}:
+ * <pre>
+ *   mvn -pl search-service -am dependency:build-classpath -Dmdep.outputFile=/tmp/cp.txt
+ *   java -cp "search-service/target/test-classes:search-service/target/classes:$(cat /tmp/cp.txt)" \
+ *       com.fbs.search.benchmark.SearchResultCodecBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResultCodecBenchmark {
+
+    private ObjectMapper objectMapper;
+    private CachedSearchResult result;
+    private byte[] jsonPayload;
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Mirrors Spring Boot's mapper, which ignores derived properties such as "stops" on read
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        Random random = new Random(42);
+        List<CachedFlightPath> paths = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            List<UUID> flights = new ArrayList<>();
+            for (int leg = 0; leg <= random.nextInt(3); leg++) {
+                flights.add(UUID.randomUUID());
+            }
+            BigDecimal cost = BigDecimal.valueOf(200_000 + random.nextInt(800_000), 2);
+            paths.add(new CachedFlightPath(cost, 60 + random.nextInt(400), flights));
+        }
+        result = new CachedSearchResult(paths);
+
+        jsonPayload = objectMapper.writeValueAsBytes(result);
+        binaryPayload = SearchResultCodec.encode(result);
+        System.out.printf("%nPayload size: json=%d bytes, binary=%d bytes%n", jsonPayload.length, binaryPayload.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(result);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return SearchResultCodec.encode(result);
+    }
+
+    @Benchmark
+    public CachedSearchResult decodeJson() throws IOException {
+        return objectMapper.readValue(jsonPayload, CachedSearchResult.class);
+    }
+
+    @Benchmark
+    public CachedSearchResult decodeBinary() {
+        return SearchResultCodec.decode(binaryPayload);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SearchResultCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,569 @@
+package com.fbs.search.service;
+
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.model.FlightEdge;
+import com.fbs.search.model.FlightGraph;
+import com.fbs.search.model.FlightPath;
+import com.fbs.search.model.SearchFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightSearchAlgorithmTest {
+
+    private FlightSearchAlgorithm searchAlgorithm;
+    private FlightGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        searchAlgorithm = new FlightSearchAlgorithm();
+        ReflectionTestUtils.setField(searchAlgorithm, "searchConfig", new SearchConfig());
+
+        // AMD -> BLR direct is fastest, AMD -> BOM -> BLR is cheapest
+        graph = FlightGraph.builder()
+                .addEdge(edge("AMD", "BLR", "9000.00", 150, "UK101"))
+                .addEdge(edge("AMD", "BOM", "2500.50", 70, "6E201"))
+                .addEdge(edge("BOM", "BLR", "3000.25", 100, "SG301"))
+                .addEdge(edge("BOM", "BLR", "4200.00", 95, "AI302"))
+                .addEdge(edge("AMD", "DEL", "3500.00", 90, "G8401"))
+                .addEdge(edge("DEL", "BLR", "4000.00", 160, "AI402"))
+                .addEdge(edge("BLR", "AMD", "8000.00", 150, "UK102"))
+                .addEdge(edge("GOI", "BOM", "2100.00", 60, "6E501"))
+                .build();
+    }
+
+    @Test
+    void findCheapestPaths_PrefersConnectionOverExpensiveDirect() {
+        List<FlightPath> paths = searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 1);
+
+        assertEquals(1, paths.size());
+        assertEquals(List.of("6E201", "SG301"), flightNumbers(paths.get(0)));
+        assertEquals(new BigDecimal("5500.75"), paths.get(0).getTotalCost());
+        assertEquals(170, paths.get(0).getTotalDuration());
+    }
+
+    @Test
+    void findFastestPaths_PrefersDirect() {
+        List<FlightPath> paths = searchAlgorithm.findFastestPaths(graph, "AMD", "BLR", 1);
+
+        assertEquals(1, paths.size());
+        assertEquals(List.of("UK101"), flightNumbers(paths.get(0)));
+    }
+
+    @Test
+    void findCheapestPaths_ReturnsDistinctPathsInCostOrder() {
+        List<FlightPath> paths = searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 10);
+
+        assertEquals(4, paths.size());
+        Set<List<String>> distinct = new HashSet<>();
+        BigDecimal previous = BigDecimal.ZERO;
+        for (FlightPath path : paths) {
+            assertTrue(distinct.add(flightNumbers(path)), "duplicate path " + flightNumbers(path));
+            assertTrue(path.getTotalCost().compareTo(previous) >= 0);
+            previous = path.getTotalCost();
+        }
+    }
+
+    @Test
+    void findCheapestPaths_SpurSearchesLeaveSharedGraphIntactAndLoopFree() {
+        List<FlightPath> paths = searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 10);
+
+        for (FlightPath path : paths) {
+            Set<String> visited = new HashSet<>();
+            visited.add(path.getFlights().get(0).getSource());
+            for (FlightEdge flight : path.getFlights()) {
+                assertTrue(visited.add(flight.getDestination()), "loop in " + flightNumbers(path));
+            }
+        }
+        assertEquals(3, graph.getEdges("AMD").size());
+        assertEquals(2, graph.getEdges("BOM").size());
+    }
+
+    @Test
+    void findCheapestPaths_NoRoute_ReturnsEmpty() {
+        assertTrue(searchAlgorithm.findCheapestPaths(graph, "DEL", "GOI", 5).isEmpty());
+        assertTrue(searchAlgorithm.findCheapestPaths(graph, "AMD", "XXX", 5).isEmpty());
+    }
+
+    @Test
+    void findCheapestPaths_ReusedContextAcrossGraphsOfDifferentSize() {
+        FlightGraph small = FlightGraph.builder()
+                .addEdge(edge("AMD", "BLR", "100.00", 10, "X1"))
+                .build();
+
+        List<FlightPath> first = searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 1);
+        assertEquals(List.of("X1"), flightNumbers(searchAlgorithm.findCheapestPaths(small, "AMD", "BLR", 1).get(0)));
+        List<FlightPath> second = searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 1);
+
+        assertEquals(flightNumbers(first.get(0)), flightNumbers(second.get(0)));
+        assertEquals(first.get(0).getTotalCost(), second.get(0).getTotalCost());
+    }
+
+    @Test
+    void goalDirectedEngines_MatchDijkstraIncludingSpurSearches() {
+        Random random = new Random(42);
+        String[] cities = new String[40];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = "C" + i;
+        }
+        FlightGraph.Builder builder = FlightGraph.builder();
+        for (int i = 0; i < 240; i++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            if (!source.equals(destination)) {
+                builder.addEdge(edge(source, destination, (1000 + random.nextInt(9000)) + ".00",
+                        30 + random.nextInt(300), "F" + i));
+            }
+        }
+        FlightGraph network = builder.build();
+
+        for (int pair = 0; pair < 60; pair++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            for (boolean byCost : new boolean[] {true, false}) {
+                List<FlightPath> expected = searchAlgorithm.findKShortestPaths(network, source, destination, 5, byCost);
+                for (SearchConfig.Engine engine : List.of(SearchConfig.Engine.ALT, SearchConfig.Engine.BIDIRECTIONAL,
+                                                          SearchConfig.Engine.CH)) {
+                    List<FlightPath> actual = searchAlgorithm.findKShortestPaths(network, source, destination, 5, byCost, engine);
+                    assertEquals(weights(expected, byCost), weights(actual, byCost),
+                            engine + " " + source + "->" + destination + (byCost ? " by cost" : " by duration"));
+                }
+            }
+        }
+    }
+
+    @Test
+    void contractionHierarchy_ReportsShortcutsAndAnswersFromHierarchy() {
+        assertNull(searchAlgorithm.getHierarchyStats(graph));
+
+        List<FlightPath> paths = searchAlgorithm.findFastestPaths(graph, "AMD", "BLR", 10, SearchConfig.Engine.CH);
+
+        assertEquals(4, paths.size());
+        assertEquals(List.of("UK101"), flightNumbers(paths.get(0)));
+        Map<String, Object> stats = searchAlgorithm.getHierarchyStats(graph);
+        assertEquals(5, stats.get("cities"));
+        assertTrue((Long) stats.get("queries") > 0);
+        assertEquals((Long) stats.get("queries"), (Long) stats.get("directAnswers") + (Long) stats.get("expandedAnswers")
+                + (Long) stats.get("dijkstraFallbacks"));
+        assertNotNull(stats.get("shortcuts"));
+        assertNotNull(stats.get("preprocessingMs"));
+    }
+
+    @Test
+    void goalDirectedEngines_FindPathsOnSmallGraph() {
+        for (SearchConfig.Engine engine : SearchConfig.Engine.values()) {
+            assertEquals(List.of("6E201", "SG301"),
+                    flightNumbers(searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 1, engine).get(0)));
+            assertEquals(List.of("UK101"),
+                    flightNumbers(searchAlgorithm.findFastestPaths(graph, "AMD", "BLR", 1, engine).get(0)));
+            assertEquals(4, searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 10, engine).size());
+            assertTrue(searchAlgorithm.findCheapestPaths(graph, "DEL", "GOI", 5, engine).isEmpty());
+        }
+    }
+
+    @Test
+    void findPaths_StopBoundAndFewestStops() {
+        List<FlightPath> direct = searchAlgorithm.findPaths(graph, "AMD", "BLR", 10, "CHEAPEST", SearchConfig.Engine.DIJKSTRA, 0);
+        assertEquals(1, direct.size());
+        assertEquals(List.of("UK101"), flightNumbers(direct.get(0)));
+
+        List<FlightPath> oneStop = searchAlgorithm.findPaths(graph, "AMD", "BLR", 10, "CHEAPEST", SearchConfig.Engine.CH, 1);
+        assertEquals(List.of("6E201", "SG301"), flightNumbers(oneStop.get(0)));
+        assertEquals(4, oneStop.size());
+        assertTrue(searchAlgorithm.findPaths(graph, "GOI", "BLR", 5, "FASTEST", SearchConfig.Engine.DIJKSTRA, 0).isEmpty());
+
+        List<FlightPath> fewestStops = searchAlgorithm.findPaths(graph, "AMD", "BLR", 10, "FEWEST_STOPS", SearchConfig.Engine.DIJKSTRA, null);
+        assertEquals(List.of("UK101"), flightNumbers(fewestStops.get(0)));
+        // One-stop paths follow in cost order
+        assertEquals(List.of("6E201", "SG301"), flightNumbers(fewestStops.get(1)));
+        assertEquals(4, fewestStops.size());
+    }
+
+    @Test
+    void findPaths_DistinctRoutingsCollapseParallelFlights() {
+        // 6E201+SG301 and 6E201+AI302 share the AMD-BOM-BLR routing
+        List<FlightPath> routings = searchAlgorithm.findPaths(graph, "AMD", "BLR", 10, "CHEAPEST",
+                SearchConfig.Engine.DIJKSTRA, null, null, true);
+        assertEquals(List.of(List.of("6E201", "SG301"), List.of("G8401", "AI402"), List.of("UK101")),
+                routings.stream().map(FlightSearchAlgorithmTest::flightNumbers).toList());
+
+        List<FlightPath> fastest = searchAlgorithm.findPaths(graph, "AMD", "BLR", 10, "FASTEST",
+                SearchConfig.Engine.CH, null, null, true);
+        assertEquals(List.of("UK101"), flightNumbers(fastest.get(0)));
+        assertEquals(3, fastest.size());
+
+        // Expanded, the parallel flight comes back in weight order
+        List<FlightPath> flights = searchAlgorithm.findPaths(graph, "AMD", "BLR", 10, "CHEAPEST",
+                SearchConfig.Engine.DIJKSTRA, null, null, false);
+        assertEquals(4, flights.size());
+        for (int i = 1; i < flights.size(); i++) {
+            assertTrue(flights.get(i - 1).getTotalCost().compareTo(flights.get(i).getTotalCost()) <= 0);
+        }
+        assertTrue(flights.stream().anyMatch(path -> flightNumbers(path).equals(List.of("6E201", "AI302"))));
+    }
+
+    @Test
+    void findPaths_FiltersApplyDuringTraversal() {
+        SearchFilter lowCost = new SearchFilter(Set.of("6E", "SG"), null, null, null, null, null);
+        assertEquals(List.of(List.of("6E201", "SG301")), numbers(searchAlgorithm.findPaths(graph, "AMD", "BLR", 10,
+                "CHEAPEST", SearchConfig.Engine.DIJKSTRA, null, null, false, lowCost)));
+
+        SearchFilter avoidBom = new SearchFilter(null, Set.of("BOM"), null, null, null, null);
+        for (SearchConfig.Engine engine : SearchConfig.Engine.values()) {
+            assertEquals(List.of(List.of("G8401", "AI402"), List.of("UK101")), numbers(searchAlgorithm.findPaths(graph,
+                    "AMD", "BLR", 10, "CHEAPEST", engine, null, null, false, avoidBom)));
+        }
+        assertEquals(List.of(List.of("G8401", "AI402"), List.of("UK101")), numbers(searchAlgorithm.findPaths(graph,
+                "AMD", "BLR", 10, "PARETO", SearchConfig.Engine.DIJKSTRA, null, null, false, avoidBom)));
+
+        SearchFilter capped = new SearchFilter(null, null, new BigDecimal("7000.00"), null, null, null);
+        assertEquals(List.of(List.of("6E201", "SG301"), List.of("6E201", "AI302")), numbers(searchAlgorithm.findPaths(
+                graph, "AMD", "BLR", 10, "CHEAPEST", SearchConfig.Engine.DIJKSTRA, null, null, false, capped)));
+
+        // The cheapest AMD-BOM-BLR flights are SG, so the routing is flown with AI302 instead
+        SearchFilter fullService = new SearchFilter(Set.of("6E", "AI", "UK"), null, null, null, null, null);
+        assertEquals(List.of(List.of("6E201", "AI302"), List.of("UK101")), numbers(searchAlgorithm.findPaths(graph,
+                "AMD", "BLR", 10, "CHEAPEST", SearchConfig.Engine.CH, null, null, true, fullService)));
+    }
+
+    @Test
+    void findPaths_DepartureWindowRestrictsFirstLeg() {
+        FlightGraph timetable = FlightGraph.builder()
+                .addEdge(timed("DEL", "BOM", "5000.00", 120, "AI101", 6, 0))
+                .addEdge(timed("DEL", "BOM", "6000.00", 120, "AI103", 18, 0))
+                .addEdge(timed("BOM", "GOI", "2000.00", 60, "6E501", 7, 0))
+                .addEdge(edge("DEL", "GOI", "9000.00", 150, "UK801"))
+                .build();
+        SearchFilter evening = new SearchFilter(null, null, null, null, LocalTime.of(17, 0), LocalTime.of(23, 0));
+        assertEquals(List.of(List.of("AI103", "6E501")), numbers(searchAlgorithm.findPaths(timetable, "DEL", "GOI", 5,
+                "CHEAPEST", SearchConfig.Engine.DIJKSTRA, null, null, false, evening)));
+
+        // Windows may run past midnight
+        SearchFilter overnight = new SearchFilter(null, null, null, null, LocalTime.of(22, 0), LocalTime.of(6, 30));
+        assertEquals(List.of(List.of("AI101", "6E501")), numbers(searchAlgorithm.findPaths(timetable, "DEL", "GOI", 5,
+                "CHEAPEST", SearchConfig.Engine.DIJKSTRA, null, null, false, overnight)));
+    }
+
+    @Test
+    void findPaths_FilterMatchesExhaustiveEnumeration() {
+        Random random = new Random(11);
+        String[] cities = new String[12];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = "C" + i;
+        }
+        String[] airlines = {"AI", "6E", "SG", "UK"};
+        FlightGraph.Builder builder = FlightGraph.builder();
+        for (int i = 0; i < 50; i++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            if (!source.equals(destination)) {
+                builder.addEdge(edge(source, destination, (1000 + random.nextInt(9000)) + ".00",
+                        30 + random.nextInt(300), airlines[random.nextInt(airlines.length)] + (100 + i)));
+            }
+        }
+        FlightGraph network = builder.build();
+        SearchFilter filter = new SearchFilter(Set.of("AI", "6E", "UK"), Set.of("C3"), null, null, null, null);
+
+        for (int pair = 0; pair < 30; pair++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            if (source.equals(destination)) continue;
+            List<List<FlightEdge>> all = new ArrayList<>();
+            enumeratePaths(network, source, destination, cities.length, new ArrayList<>(), new HashSet<>(List.of(source)), all);
+            List<List<FlightEdge>> allowed = all.stream().filter(path -> path.stream().allMatch(flight ->
+                    !flight.getSource().equals("C3") && !flight.getDestination().equals("C3")
+                            && !FlightGraph.airlineOf(flight.getFlightNumber()).equals("SG"))).toList();
+            for (String criteria : List.of("CHEAPEST", "FASTEST")) {
+                List<List<Long>> expected = allowed.stream().map(path -> rankKey(path, criteria))
+                        .sorted(Comparator.comparing((List<Long> key) -> key.get(0))).limit(5).toList();
+                for (SearchConfig.Engine engine : SearchConfig.Engine.values()) {
+                    List<List<Long>> actual = searchAlgorithm.findPaths(network, source, destination, 5, criteria,
+                            engine, null, null, false, filter).stream()
+                            .map(path -> rankKey(path.getFlights(), criteria)).toList();
+                    assertEquals(expected, actual, criteria + " " + engine + " " + source + "->" + destination);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findPaths_StopBoundMatchesExhaustiveEnumeration() {
+        Random random = new Random(7);
+        String[] cities = new String[30];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = "C" + i;
+        }
+        FlightGraph.Builder builder = FlightGraph.builder();
+        for (int i = 0; i < 150; i++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            if (!source.equals(destination)) {
+                builder.addEdge(edge(source, destination, (1000 + random.nextInt(9000)) + ".00",
+                        30 + random.nextInt(300), "F" + i));
+            }
+        }
+        FlightGraph network = builder.build();
+
+        for (int pair = 0; pair < 40; pair++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            if (source.equals(destination)) continue;
+            for (int maxStops = 0; maxStops <= 2; maxStops++) {
+                List<List<FlightEdge>> all = new ArrayList<>();
+                enumeratePaths(network, source, destination, maxStops + 1, new ArrayList<>(), new HashSet<>(List.of(source)), all);
+                for (String criteria : List.of("CHEAPEST", "FASTEST", "FEWEST_STOPS")) {
+                    Comparator<List<Long>> order = Comparator.comparing((List<Long> key) -> key.get(0))
+                            .thenComparing(key -> key.get(1));
+                    List<List<Long>> expected = all.stream().map(path -> rankKey(path, criteria)).sorted(order).limit(5).toList();
+                    List<List<Long>> actual = searchAlgorithm.findPaths(network, source, destination, 5, criteria,
+                            SearchConfig.Engine.DIJKSTRA, maxStops).stream()
+                            .map(path -> rankKey(path.getFlights(), criteria)).toList();
+                    assertEquals(expected, actual, criteria + " " + source + "->" + destination + " maxStops=" + maxStops);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findParetoPaths_ReturnsTradeOffsBetweenCheapestAndFastest() {
+        List<FlightPath> front = searchAlgorithm.findPaths(graph, "AMD", "BLR", 1, "PARETO", SearchConfig.Engine.DIJKSTRA, null);
+
+        // 6E201+SG301 is cheapest, UK101 fastest, 6E201+AI302 trades 1199.75 for 5 minutes;
+        // G8401+AI402 is beaten on both by 6E201+SG301
+        assertEquals(List.of(List.of("6E201", "SG301"), List.of("6E201", "AI302"), List.of("UK101")),
+                front.stream().map(FlightSearchAlgorithmTest::flightNumbers).toList());
+        assertTrue(searchAlgorithm.findParetoPaths(graph, "DEL", "GOI", null).isEmpty());
+    }
+
+    @Test
+    void findParetoPaths_MatchesExhaustiveFront() {
+        Random random = new Random(11);
+        String[] cities = new String[12];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = "C" + i;
+        }
+        FlightGraph.Builder builder = FlightGraph.builder();
+        for (int i = 0; i < 45; i++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            if (!source.equals(destination)) {
+                builder.addEdge(edge(source, destination, (1000 + random.nextInt(9000)) + ".00",
+                        30 + random.nextInt(300), "F" + i));
+            }
+        }
+        FlightGraph network = builder.build();
+
+        for (int pair = 0; pair < 30; pair++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            if (source.equals(destination)) continue;
+            for (Integer maxStops : Arrays.asList(null, 1, 2)) {
+                List<List<FlightEdge>> all = new ArrayList<>();
+                int maxLegs = maxStops != null ? maxStops + 1 : cities.length;
+                enumeratePaths(network, source, destination, maxLegs, new ArrayList<>(), new HashSet<>(List.of(source)), all);
+                // Without a stop bound the front is two-dimensional; with one, fewer legs also count
+                Set<List<Long>> expected = new HashSet<>();
+                for (List<FlightEdge> path : all) {
+                    long cost = rankKey(path, "CHEAPEST").get(0);
+                    long duration = rankKey(path, "FASTEST").get(0);
+                    boolean dominated = all.stream().anyMatch(other -> {
+                        long otherCost = rankKey(other, "CHEAPEST").get(0);
+                        long otherDuration = rankKey(other, "FASTEST").get(0);
+                        boolean noWorse = otherCost <= cost && otherDuration <= duration
+                                && (maxStops == null || other.size() <= path.size());
+                        return noWorse && (otherCost < cost || otherDuration < duration
+                                || (maxStops != null && other.size() < path.size()));
+                    });
+                    if (!dominated) {
+                        expected.add(List.of(cost, duration, maxStops == null ? 0L : path.size()));
+                    }
+                }
+                Set<List<Long>> actual = new HashSet<>();
+                for (FlightPath path : searchAlgorithm.findParetoPaths(network, source, destination, maxStops)) {
+                    actual.add(List.of(rankKey(path.getFlights(), "CHEAPEST").get(0), rankKey(path.getFlights(), "FASTEST").get(0),
+                            maxStops == null ? 0L : path.getFlights().size()));
+                }
+                assertEquals(expected, actual, source + "->" + destination + " maxStops=" + maxStops);
+            }
+        }
+    }
+
+    @Test
+    void findEarliestArrivalPaths_RespectsMinimumConnectionTime() {
+        FlightGraph timetable = FlightGraph.builder()
+                .addEdge(timed("DEL", "BOM", "5000.00", 120, "AI101", 8, 0))
+                .addEdge(timed("BOM", "GOI", "2000.00", 40, "6E201", 10, 30))
+                .addEdge(timed("BOM", "GOI", "2500.00", 75, "SG301", 11, 0))
+                .addEdge(timed("DEL", "GOI", "9000.00", 330, "UK901", 9, 0))
+                .build();
+
+        // 6E201 leaves 30 minutes after AI101 lands, inside the default 45-minute connection time
+        List<FlightPath> paths = searchAlgorithm.findPaths(timetable, "DEL", "GOI", 2, "EARLIEST_ARRIVAL",
+                SearchConfig.Engine.DIJKSTRA, null, LocalTime.of(7, 0));
+        assertEquals(List.of("AI101", "SG301"), flightNumbers(paths.get(0)));
+        assertEquals(255, paths.get(0).getTotalDuration()); // 08:00 to 12:15, layover included
+        assertEquals(List.of("UK901"), flightNumbers(paths.get(1)));
+        assertEquals(2, paths.size());
+
+        assertEquals(List.of("UK901"), flightNumbers(searchAlgorithm.findEarliestArrivalPaths(
+                timetable, "DEL", "GOI", 1, 0, LocalTime.of(7, 0)).get(0)));
+        // After AI101 has left, the next connection via BOM is the following morning's
+        List<FlightPath> later = searchAlgorithm.findEarliestArrivalPaths(timetable, "DEL", "GOI", 2, 1, LocalTime.of(9, 30));
+        assertEquals(List.of("AI101", "SG301"), flightNumbers(later.get(0)));
+        assertEquals(255, later.get(0).getTotalDuration());
+
+        SearchConfig.Timetable config = new SearchConfig.Timetable();
+        config.setAirportMinConnectionMinutes(Map.of("BOM", 20));
+        Timetable.Journey quick = Timetable.build(timetable, config).earliestArrival(timetable,
+                timetable.getCityId("DEL"), timetable.getCityId("GOI"), 7 * 60, Integer.MAX_VALUE, null);
+        assertEquals(11 * 60 + 10, quick.arrival());
+    }
+
+    @Test
+    void findEarliestArrivalPaths_MatchesTimeDependentDijkstra() {
+        Random random = new Random(3);
+        String[] cities = new String[25];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = "C" + i;
+        }
+        FlightGraph.Builder builder = FlightGraph.builder();
+        for (int i = 0; i < 200; i++) {
+            String source = cities[random.nextInt(cities.length)];
+            String destination = cities[random.nextInt(cities.length)];
+            if (!source.equals(destination)) {
+                builder.addEdge(timed(source, destination, "1000.00", 30 + random.nextInt(300), "F" + i,
+                        random.nextInt(24), random.nextInt(60)));
+            }
+        }
+        FlightGraph network = builder.build();
+        Timetable timetable = Timetable.build(network, new SearchConfig.Timetable());
+
+        for (int pair = 0; pair < 60; pair++) {
+            int source = random.nextInt(network.getCityCount());
+            int destination = random.nextInt(network.getCityCount());
+            int departAfter = random.nextInt(Timetable.MINUTES_PER_DAY);
+            if (source == destination) continue;
+
+            Timetable.Journey journey = timetable.earliestArrival(network, source, destination, departAfter,
+                    Integer.MAX_VALUE, null);
+            int expected = timeDependentArrival(network, source, destination, departAfter, 45, 2 * Timetable.MINUTES_PER_DAY);
+            assertEquals(expected, journey != null ? journey.arrival() : Integer.MAX_VALUE, source + "->" + destination);
+        }
+    }
+
+    @Test
+    void flightGraph_WithoutFlight_LeavesOriginalIntact() {
+        FlightEdge cheapestLeg = searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 1).get(0).getFlights().get(1);
+
+        FlightGraph updated = graph.withoutFlight(cheapestLeg.getFlightId());
+
+        assertEquals(7, updated.getEdgeCount());
+        assertEquals(-1, updated.getEdgeIndex(cheapestLeg.getFlightId()));
+        assertEquals(List.of("6E201", "AI302"), flightNumbers(searchAlgorithm.findCheapestPaths(updated, "AMD", "BLR", 1).get(0)));
+        assertEquals(List.of("6E201", "SG301"), flightNumbers(searchAlgorithm.findCheapestPaths(graph, "AMD", "BLR", 1).get(0)));
+        assertSame(updated, updated.withoutFlight(cheapestLeg.getFlightId()));
+    }
+
+    @Test
+    void flightGraph_InternsCitiesAndExposesReadOnlyEdges() {
+        assertEquals(5, graph.getCityCount());
+        assertEquals(8, graph.getEdgeCount());
+        assertTrue(graph.hasCity("BOM"));
+        assertEquals(-1, graph.getCityId("XXX"));
+        assertEquals(3, graph.getEdges("AMD").size());
+        assertThrows(UnsupportedOperationException.class, () -> graph.getEdges("AMD").clear());
+        assertEquals(250050L, FlightGraph.toFixedCost(new BigDecimal("2500.5")));
+    }
+
+    /**
+     * Earliest arrival by Dijkstra over airports, waiting at each airport for the next daily
+     * departure that respects the connection time and leaves before the horizon ends.
+     */
+    private static int timeDependentArrival(FlightGraph graph, int source, int destination, int departAfter,
+                                            int minConnection, int horizon) {
+        int[] arrival = new int[graph.getCityCount()];
+        Arrays.fill(arrival, Integer.MAX_VALUE);
+        arrival[source] = departAfter;
+        boolean[] settled = new boolean[graph.getCityCount()];
+        PriorityQueue<int[]> queue = new PriorityQueue<>(Comparator.comparingInt((int[] entry) -> entry[1]));
+        queue.add(new int[] {source, departAfter});
+        while (!queue.isEmpty()) {
+            int city = queue.poll()[0];
+            if (settled[city]) continue;
+            settled[city] = true;
+            int ready = city == source ? arrival[city] : arrival[city] + minConnection;
+            for (int e = graph.getEdgeStart(city); e < graph.getEdgeEnd(city); e++) {
+                int departure = graph.getEdgeDeparture(e);
+                while (departure < ready) {
+                    departure += Timetable.MINUTES_PER_DAY;
+                }
+                if (departure >= horizon) continue;
+                int arrives = departure + graph.getEdgeDuration(e);
+                int target = graph.getEdgeTarget(e);
+                if (arrives < arrival[target]) {
+                    arrival[target] = arrives;
+                    queue.add(new int[] {target, arrives});
+                }
+            }
+        }
+        return arrival[destination];
+    }
+
+    private static void enumeratePaths(FlightGraph graph, String city, String destination, int legsLeft,
+                                       List<FlightEdge> path, Set<String> visited, List<List<FlightEdge>> result) {
+        if (city.equals(destination)) {
+            result.add(new ArrayList<>(path));
+            return;
+        }
+        if (legsLeft == 0) return;
+        for (FlightEdge flight : graph.getEdges(city)) {
+            if (visited.add(flight.getDestination())) {
+                path.add(flight);
+                enumeratePaths(graph, flight.getDestination(), destination, legsLeft - 1, path, visited, result);
+                path.remove(path.size() - 1);
+                visited.remove(flight.getDestination());
+            }
+        }
+    }
+
+    // Equal-weight paths may be listed in any order, so paths are compared by what they are ranked on
+    private static List<Long> rankKey(List<FlightEdge> path, String criteria) {
+        long cost = path.stream().mapToLong(flight -> FlightGraph.toFixedCost(flight.getCost())).sum();
+        long duration = path.stream().mapToLong(FlightEdge::getDuration).sum();
+        return switch (criteria) {
+            case "FASTEST" -> List.of(duration, 0L);
+            case "FEWEST_STOPS" -> List.of((long) path.size(), cost);
+            default -> List.of(cost, 0L);
+        };
+    }
+
+    private static FlightEdge timed(String source, String destination, String cost, int duration, String flightNumber,
+                                    int hour, int minute) {
+        LocalTime departure = LocalTime.of(hour, minute);
+        return new FlightEdge(UUID.randomUUID(), source, destination, new BigDecimal(cost), duration, flightNumber,
+                departure, departure.plusMinutes(duration));
+    }
+
+    private static FlightEdge edge(String source, String destination, String cost, int duration, String flightNumber) {
+        return new FlightEdge(UUID.randomUUID(), source, destination, new BigDecimal(cost), duration, flightNumber);
+    }
+
+    // Equal-weight paths may be listed in a different order by different engines
+    private static List<Object> weights(List<FlightPath> paths, boolean byCost) {
+        return paths.stream().map(path -> byCost ? (Object) path.getTotalCost() : path.getTotalDuration()).toList();
+    }
+
+    private static List<List<String>> numbers(List<FlightPath> paths) {
+        return paths.stream().map(FlightSearchAlgorithmTest::flightNumbers).toList();
+    }
+
+    private static List<String> flightNumbers(FlightPath path) {
+        return path.getFlights().stream().map(FlightEdge::getFlightNumber).toList();
+    }
+}
@@ -0,0 +1,214 @@
+package com.fbs.search.service;
+
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import com.fbs.search.model.FlightEdge;
+import com.fbs.search.model.FlightGraph;
+import com.fbs.search.model.FlightPath;
+import com.fbs.search.model.GraphSnapshot;
+import com.fbs.search.model.SearchFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FlightSearchServiceTest {
+
+    @Mock
+    private RedisFlightCacheService cacheService;
+
+    @Mock
+    private GraphService graphService;
+
+    @Mock
+    private FlightSearchAlgorithm searchAlgorithm;
+
+    @Mock
+    private SearchConfig searchConfig;
+
+    @InjectMocks
+    private FlightSearchService searchService;
+
+    private final LocalDate date = LocalDate.now().plusDays(7);
+    private FlightGraph graph;
+    private List<FlightPath> paths;
+    private CachedSearchResult computedResult;
+
+    @BeforeEach
+    void setUp() {
+        when(searchConfig.getOnDemand()).thenReturn(new SearchConfig.OnDemand());
+        when(searchConfig.getPrecompute()).thenReturn(new SearchConfig.Precompute());
+        when(searchConfig.getContraction()).thenReturn(new SearchConfig.Contraction());
+        when(searchConfig.getPareto()).thenReturn(new SearchConfig.Pareto());
+        when(searchConfig.getFilters()).thenReturn(new SearchConfig.Filters());
+        when(cacheService.isWithinBookingHorizon(any())).thenReturn(true);
+
+        FlightEdge edge = new FlightEdge(UUID.randomUUID(), "DEL", "BOM", new BigDecimal("5000.00"), 120, "AI101");
+        graph = FlightGraph.builder().addEdge(edge).build();
+        when(graphService.getFlightGraph()).thenReturn(graph);
+        when(graphService.getSnapshot()).thenReturn(new GraphSnapshot(1, graph, LocalDateTime.now()));
+
+        paths = List.of(new FlightPath(List.of(edge), edge.getCost(), edge.getDuration()));
+        computedResult = new CachedSearchResult(List.of(
+                new CachedFlightPath(edge.getCost(), edge.getDuration(), List.of(edge.getFlightId()))));
+        when(cacheService.toCachedResult(paths)).thenReturn(computedResult);
+    }
+
+    @Test
+    void search_CacheHitSkipsComputation() {
+        CachedSearchResult cached = new CachedSearchResult(List.of());
+        when(cacheService.getCachedResults("DEL", "BOM", "CHEAPEST")).thenReturn(Optional.of(cached));
+
+        assertSame(cached, searchService.search("DEL", "BOM", date, "CHEAPEST").orElseThrow());
+        verifyNoInteractions(searchAlgorithm);
+    }
+
+    @Test
+    void search_MissComputesAndWritesBack() {
+        when(cacheService.getCachedResults("DEL", "BOM", "CHEAPEST")).thenReturn(Optional.empty());
+        when(searchAlgorithm.findPaths(any(), eq("DEL"), eq("BOM"), anyInt(), eq("CHEAPEST"), any(), any(), any(), anyBoolean())).thenReturn(paths);
+
+        assertSame(computedResult, searchService.search("DEL", "BOM", date, "CHEAPEST").orElseThrow());
+        verify(cacheService).cacheSearchResultsIfAbsent("DEL", "BOM", "CHEAPEST", paths);
+        verify(cacheService, never()).evictRoute(any(), any(), any());
+    }
+
+    @Test
+    void search_CancellationDuringComputeSkipsWriteBack() {
+        when(cacheService.getCachedResults("DEL", "BOM", "CHEAPEST")).thenReturn(Optional.empty());
+        when(searchAlgorithm.findPaths(any(), eq("DEL"), eq("BOM"), anyInt(), eq("CHEAPEST"), any(), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            // A cancellation publishes the next version while the search runs
+            when(graphService.getSnapshot()).thenReturn(new GraphSnapshot(2, graph, LocalDateTime.now()));
+            return paths;
+        });
+
+        assertSame(computedResult, searchService.search("DEL", "BOM", date, "CHEAPEST").orElseThrow());
+        verify(cacheService, never()).cacheSearchResultsIfAbsent(any(), any(), any(), any());
+    }
+
+    @Test
+    void search_CancellationDuringWriteBackEvictsEntry() {
+        when(cacheService.getCachedResults("DEL", "BOM", "CHEAPEST")).thenReturn(Optional.empty());
+        when(searchAlgorithm.findPaths(any(), eq("DEL"), eq("BOM"), anyInt(), eq("CHEAPEST"), any(), any(), any(), anyBoolean())).thenReturn(paths);
+        doAnswer(invocation -> {
+            // The cancellation's invalidation may have read the index before this SET NX landed
+            when(graphService.getSnapshot()).thenReturn(new GraphSnapshot(2, graph, LocalDateTime.now()));
+            return null;
+        }).when(cacheService).cacheSearchResultsIfAbsent("DEL", "BOM", "CHEAPEST", paths);
+
+        assertSame(computedResult, searchService.search("DEL", "BOM", date, "CHEAPEST").orElseThrow());
+        verify(cacheService).evictRoute("DEL", "BOM", "CHEAPEST");
+    }
+
+    @Test
+    void search_RedisDownServesFromGraphAndBacksOff() {
+        when(cacheService.getCachedResults(any(), any(), any()))
+                .thenThrow(new RedisConnectionFailureException("connection refused"));
+        when(searchAlgorithm.findPaths(any(), eq("DEL"), eq("BOM"), anyInt(), eq("FASTEST"), any(), any(), any(), anyBoolean())).thenReturn(paths);
+
+        assertTrue(searchService.search("DEL", "BOM", date, "FASTEST").isPresent());
+        assertTrue(searchService.search("DEL", "BOM", date, "FASTEST").isPresent());
+
+        // The second search does not wait on Redis again, and nothing is written back
+        verify(cacheService, times(1)).getCachedResults(any(), any(), any());
+        verify(cacheService, never()).cacheSearchResultsIfAbsent(any(), any(), any(), any());
+        assertEquals(2L, searchService.getStats().get("degraded"));
+    }
+
+    @Test
+    void search_ConcurrentMissesShareOneComputation() throws Exception {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cacheService.getCachedResults(any(), any(), any())).thenReturn(Optional.empty());
+        when(searchAlgorithm.findPaths(any(), eq("DEL"), eq("BOM"), anyInt(), eq("CHEAPEST"), any(), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            computing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return paths;
+        });
+
+        CompletableFuture<Optional<CachedSearchResult>> leader =
+                CompletableFuture.supplyAsync(() -> searchService.search("DEL", "BOM", date, "CHEAPEST"));
+        assertTrue(computing.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Optional<CachedSearchResult>> follower =
+                CompletableFuture.supplyAsync(() -> searchService.search("DEL", "BOM", date.plusDays(1), "CHEAPEST"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Long.valueOf(1).equals(searchService.getStats().get("coalesced")) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertSame(computedResult, leader.get(5, TimeUnit.SECONDS).orElseThrow());
+        assertSame(computedResult, follower.get(5, TimeUnit.SECONDS).orElseThrow());
+        verify(searchAlgorithm, times(1)).findPaths(any(), any(), any(), anyInt(), any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void filter_NarrowsCachedResultWhileEnoughPathsRemain() {
+        CachedSearchResult cached = filterCandidates();
+        SearchConfig.Filters filters = new SearchConfig.Filters();
+        filters.setMinResults(1);
+        when(searchConfig.getFilters()).thenReturn(filters);
+
+        FlightSearchService.FilteredResult filtered = searchService.filter(Optional.of(cached),
+                new SearchFilter(null, null, new BigDecimal("5500.00"), null, null, null),
+                "DEL", "BOM", "CHEAPEST", null, null, null, false);
+
+        assertFalse(filtered.recomputed());
+        assertEquals(List.of(cached.getPaths().get(0)), filtered.result().orElseThrow().getPaths());
+        verify(searchAlgorithm, never()).findPaths(any(), any(), any(), anyInt(), any(), any(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void filter_RecomputesWhenTooFewCachedPathsPass() {
+        CachedSearchResult cached = filterCandidates();
+        SearchFilter indiGo = new SearchFilter(Set.of("6E"), null, null, null, null, null);
+        when(searchAlgorithm.findPaths(any(), eq("DEL"), eq("BOM"), eq(2), eq("CHEAPEST"), any(), any(), any(),
+                eq(false), eq(indiGo))).thenReturn(paths);
+
+        FlightSearchService.FilteredResult filtered = searchService.filter(Optional.of(cached), indiGo,
+                "DEL", "BOM", "CHEAPEST", null, null, null, false);
+
+        assertTrue(filtered.recomputed());
+        assertSame(computedResult, filtered.result().orElseThrow());
+        assertEquals(1L, searchService.getStats().get("filterRecomputed"));
+    }
+
+    // Two cached AI flights, a full result for two paths per route
+    private CachedSearchResult filterCandidates() {
+        SearchConfig.Precompute precompute = new SearchConfig.Precompute();
+        precompute.setPathsPerRoute(2);
+        when(searchConfig.getPrecompute()).thenReturn(precompute);
+        FlightEdge morning = new FlightEdge(UUID.randomUUID(), "DEL", "BOM", new BigDecimal("5000.00"), 120, "AI101");
+        FlightEdge evening = new FlightEdge(UUID.randomUUID(), "DEL", "BOM", new BigDecimal("6000.00"), 125, "AI103");
+        FlightEdge indiGo = new FlightEdge(UUID.randomUUID(), "DEL", "BOM", new BigDecimal("6500.00"), 130, "6E205");
+        when(graphService.getFlightGraph()).thenReturn(
+                FlightGraph.builder().addEdge(morning).addEdge(evening).addEdge(indiGo).build());
+        return new CachedSearchResult(List.of(
+                new CachedFlightPath(morning.getCost(), morning.getDuration(), List.of(morning.getFlightId())),
+                new CachedFlightPath(evening.getCost(), evening.getDuration(), List.of(evening.getFlightId()))));
+    }
+}
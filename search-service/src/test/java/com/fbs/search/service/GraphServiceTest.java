@@ -0,0 +1,360 @@
+package com.fbs.search.service;
+
+import com.fbs.search.accessor.InventoryServiceAccessor;
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.dto.Flight;
+import com.fbs.search.dto.FlightChange;
+import com.fbs.search.dto.FlightChanges;
+import com.fbs.search.exception.SearchServiceException;
+import com.fbs.search.model.FlightEdge;
+import com.fbs.search.model.FlightGraph;
+import com.fbs.search.model.GraphSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class GraphServiceTest {
+
+    @Mock
+    private InventoryServiceAccessor inventoryServiceAccessor;
+
+    @Spy
+    private FlightSearchAlgorithm searchAlgorithm = new FlightSearchAlgorithm();
+
+    @Mock
+    private RedisFlightCacheService cacheService;
+
+    @Mock
+    private SearchConfig searchConfig;
+
+    @Mock
+    private SearchNearCache nearCache;
+
+    @Mock
+    private GraphSnapshotStore snapshotStore;
+
+    @Spy
+    private SeatAvailability seatAvailability = new SeatAvailability();
+
+    @InjectMocks
+    private GraphService graphService;
+
+    private Flight delBom;
+    private Flight bomGoi;
+
+    @BeforeEach
+    void setUp() {
+        SearchConfig.Precompute precompute = new SearchConfig.Precompute();
+        precompute.setParallelism(1);
+        when(searchConfig.getPrecompute()).thenReturn(precompute);
+        when(searchConfig.getSync()).thenReturn(new SearchConfig.Sync());
+        when(searchConfig.getOnDemand()).thenReturn(new SearchConfig.OnDemand());
+        when(searchConfig.getContraction()).thenReturn(new SearchConfig.Contraction());
+        when(searchConfig.getPareto()).thenReturn(new SearchConfig.Pareto());
+        when(searchConfig.getTimetable()).thenReturn(new SearchConfig.Timetable());
+        when(searchConfig.getFilters()).thenReturn(new SearchConfig.Filters());
+        ReflectionTestUtils.setField(searchAlgorithm, "searchConfig", searchConfig);
+
+        delBom = flight("DEL", "BOM", "5000.00", 120);
+        bomGoi = flight("BOM", "GOI", "3000.00", 75);
+        streamFlights(delBom, bomGoi);
+        when(cacheService.beginGeneration()).thenReturn(7L, 8L);
+    }
+
+    @Test
+    void initializeGraphs_PublishesNewVersionOnEveryRebuild() {
+        assertNull(graphService.getSnapshot());
+
+        graphService.initializeGraphs();
+        GraphSnapshot first = graphService.getSnapshot();
+        graphService.initializeGraphs();
+        GraphSnapshot second = graphService.getSnapshot();
+
+        assertEquals(1, first.version());
+        assertEquals(2, second.version());
+        assertNotSame(first.graph(), second.graph());
+        assertEquals(3, second.graph().getCityCount());
+    }
+
+    @Test
+    void initializeGraphs_WritesIntoNewGenerationThenActivatesIt() {
+        graphService.initializeGraphs();
+
+        InOrder order = inOrder(cacheService, nearCache);
+        order.verify(cacheService).beginGeneration();
+        order.verify(cacheService, atLeastOnce()).newWriteBatch(eq(7L), eq(true), any());
+        order.verify(cacheService).activateGeneration(7L);
+        order.verify(nearCache).invalidateAll();
+        verify(cacheService, never()).abandonGeneration(anyLong());
+    }
+
+    @Test
+    void applyFlightCancellation_SwapsSnapshotAndLeavesPreviousIntact() {
+        graphService.initializeGraphs();
+        GraphSnapshot before = graphService.getSnapshot();
+
+        graphService.applyFlightCancellation(delBom.getFlightId());
+        GraphSnapshot after = graphService.getSnapshot();
+
+        assertEquals(before.version() + 1, after.version());
+        assertEquals(-1, after.graph().getEdgeIndex(delBom.getFlightId()));
+        // A search that started on the previous snapshot still sees the flight
+        assertTrue(before.graph().getEdgeIndex(delBom.getFlightId()) >= 0);
+        assertEquals(2, before.graph().getEdgeCount());
+    }
+
+    @Test
+    void applyFlightCancellation_UnknownFlightKeepsVersion() {
+        graphService.initializeGraphs();
+        GraphSnapshot before = graphService.getSnapshot();
+
+        assertTrue(graphService.applyFlightCancellation(UUID.randomUUID()).isEmpty());
+        assertSame(before, graphService.getSnapshot());
+    }
+
+    @Test
+    void bootstrap_WarmsUpInBackgroundAndReportsPhases() {
+        assertEquals(WarmupStatus.Phase.STARTING, graphService.getWarmupStatus().getPhase());
+
+        graphService.bootstrap();
+
+        verify(cacheService, timeout(5000)).activateGeneration(7L);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (graphService.getWarmupStatus().getPhase() != WarmupStatus.Phase.READY
+                && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(graphService.isReady());
+        assertEquals(WarmupStatus.Phase.READY, graphService.getWarmupStatus().getPhase());
+    }
+
+    @Test
+    void initializeGraphs_InventoryDownReportsFailure() {
+        streamFlights();
+
+        assertThrows(SearchServiceException.class, () -> graphService.initializeGraphs());
+        assertFalse(graphService.isReady());
+        assertEquals(WarmupStatus.Phase.FAILED, graphService.getWarmupStatus().getPhase());
+        assertNotNull(graphService.getWarmupStatus().toMap().get("lastError"));
+    }
+
+    @Test
+    void bootstrap_RestoresSnapshotWithoutWaitingForInventory() {
+        FlightGraph stored = FlightGraph.builder()
+                .addEdge(new FlightEdge(delBom.getFlightId(), "DEL", "BOM", delBom.getCost(), 120, "DELBOM"))
+                .build();
+        when(snapshotStore.isEnabled()).thenReturn(true);
+        when(snapshotStore.load()).thenReturn(Optional.of(
+                new GraphSnapshotStore.StoredGraph(5, 41, 0, LocalDateTime.now(), stored)));
+        when(cacheService.getActiveGeneration()).thenReturn(41L);
+        when(snapshotStore.fingerprint(any())).thenReturn(1L, 2L);
+
+        graphService.bootstrap();
+
+        assertEquals(5, graphService.getSnapshot().version());
+        assertSame(stored, graphService.getFlightGraph());
+        // Inventory differs from the snapshot, so the background reconcile rebuilds
+        verify(cacheService, timeout(5000)).activateGeneration(7L);
+        verify(snapshotStore, timeout(5000)).save(any(), eq(6L), eq(7L));
+        assertEquals(2, graphService.getFlightGraph().getEdgeCount());
+    }
+
+    @Test
+    void syncChanges_RemovalRecomputesOnlyAffectedPairs() {
+        when(inventoryServiceAccessor.getChangesHead()).thenReturn(OptionalLong.of(10));
+        graphService.initializeGraphs();
+        when(inventoryServiceAccessor.getFlightChanges(eq(10L), any(), anyInt())).thenReturn(new FlightChanges(
+                List.of(new FlightChange(11, delBom.getFlightId(), "CANCELLED", null)), 11, false, List.of()));
+
+        assertEquals(1, graphService.syncChanges());
+
+        assertEquals(-1, graphService.getFlightGraph().getEdgeIndex(delBom.getFlightId()));
+        assertEquals(11, graphService.getChangeWatermark());
+        verify(cacheService).invalidateFlight(any(), eq(delBom.getFlightId()));
+        verify(cacheService, times(1)).beginGeneration();
+    }
+
+    @Test
+    void syncChanges_AppliesRemovalsAsOneBatch() {
+        when(inventoryServiceAccessor.getChangesHead()).thenReturn(OptionalLong.of(10));
+        graphService.initializeGraphs();
+        GraphSnapshot before = graphService.getSnapshot();
+        when(inventoryServiceAccessor.getFlightChanges(eq(10L), any(), anyInt())).thenReturn(new FlightChanges(
+                List.of(new FlightChange(11, delBom.getFlightId(), "CANCELLED", null),
+                        new FlightChange(12, bomGoi.getFlightId(), "CANCELLED", null)), 12, false, List.of()));
+
+        assertEquals(2, graphService.syncChanges());
+
+        // One graph copy and publish, one write batch for both flights
+        assertEquals(before.version() + 1, graphService.getSnapshot().version());
+        assertEquals(0, graphService.getFlightGraph().getEdgeCount());
+        verify(cacheService).invalidateFlight(any(), eq(delBom.getFlightId()));
+        verify(cacheService).invalidateFlight(any(), eq(bomGoi.getFlightId()));
+        verify(cacheService, times(1)).newWriteBatch(eq(true), any());
+    }
+
+    @Test
+    void applyFlightCancellation_DoesNotWaitForPrecomputeAndIsReplayedIntoItsGeneration() throws Exception {
+        CountDownLatch precomputing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            precomputing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(cacheService).activateGeneration(7L);
+
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(graphService::initializeGraphs);
+        assertTrue(precomputing.await(5, TimeUnit.SECONDS));
+
+        graphService.applyFlightCancellation(delBom.getFlightId());
+        verify(cacheService, times(1)).invalidateFlight(any(), eq(delBom.getFlightId()));
+
+        release.countDown();
+        rebuild.get(5, TimeUnit.SECONDS);
+
+        // The new generation was computed with the flight, so the cancellation is applied to it too
+        verify(cacheService, times(2)).invalidateFlight(any(), eq(delBom.getFlightId()));
+        verify(nearCache).invalidateFlight(delBom.getFlightId());
+        assertEquals(-1, graphService.getFlightGraph().getEdgeIndex(delBom.getFlightId()));
+    }
+
+    @Test
+    void syncChanges_UpsertRecomputesFromMemoryGraphWithoutReload() {
+        when(inventoryServiceAccessor.getChangesHead()).thenReturn(OptionalLong.of(10));
+        graphService.initializeGraphs();
+        Flight goiDel = flight("GOI", "DEL", "4000.00", 150);
+        Flight repriced = flight("DEL", "BOM", "4500.00", 120);
+        repriced.setFlightId(delBom.getFlightId());
+        when(inventoryServiceAccessor.getFlightChanges(eq(10L), any(), anyInt())).thenReturn(new FlightChanges(
+                List.of(new FlightChange(11, goiDel.getFlightId(), "CREATED", goiDel),
+                        new FlightChange(12, delBom.getFlightId(), "UPDATED", repriced)), 12, true, List.of()));
+        when(inventoryServiceAccessor.getFlightChanges(eq(12L), any(), anyInt())).thenReturn(new FlightChanges(List.of(), 12, false, List.of()));
+
+        assertEquals(2, graphService.syncChanges());
+
+        FlightGraph graph = graphService.getFlightGraph();
+        assertEquals(3, graph.getEdgeCount());
+        assertEquals(0, new BigDecimal("4500.00").compareTo(graph.getEdge(graph.getEdgeIndex(delBom.getFlightId())).getCost()));
+        assertEquals(12, graphService.getChangeWatermark());
+        verify(inventoryServiceAccessor, times(1)).streamAllFlights(any());
+        verify(cacheService).activateGeneration(8L);
+
+        // Nothing new: no further recompute
+        assertEquals(0, graphService.syncChanges());
+        verify(cacheService, times(2)).beginGeneration();
+    }
+
+    @Test
+    void initializeGraphs_SeedsSeatCountersAndChangesKeepThemCurrent() {
+        delBom.setAvailableSeats(4);
+        bomGoi.setAvailableSeats(0);
+        when(inventoryServiceAccessor.getChangesHead()).thenReturn(OptionalLong.of(10));
+        graphService.initializeGraphs();
+
+        assertEquals(4, seatAvailability.get(delBom.getFlightId()));
+        assertEquals(0, seatAvailability.get(bomGoi.getFlightId()));
+
+        Flight restocked = flight("BOM", "GOI", "3000.00", 75);
+        restocked.setFlightId(bomGoi.getFlightId());
+        restocked.setAvailableSeats(6);
+        when(inventoryServiceAccessor.getFlightChanges(eq(10L), any(), anyInt())).thenReturn(new FlightChanges(
+                List.of(new FlightChange(11, bomGoi.getFlightId(), "UPDATED", restocked),
+                        new FlightChange(12, delBom.getFlightId(), "CANCELLED", null)), 12, false, List.of()));
+
+        graphService.syncChanges();
+
+        assertEquals(6, seatAvailability.get(bomGoi.getFlightId()));
+        assertNull(seatAvailability.get(delBom.getFlightId()));
+    }
+
+    @Test
+    void syncChanges_RereadsSkippedSequencesUntilTheyCommit() {
+        when(inventoryServiceAccessor.getChangesHead()).thenReturn(OptionalLong.of(10));
+        graphService.initializeGraphs();
+        when(inventoryServiceAccessor.getFlightChanges(eq(10L), eq(Set.of()), anyInt())).thenReturn(new FlightChanges(
+                List.of(new FlightChange(12, bomGoi.getFlightId(), "CANCELLED", null)), 12, false, List.of(11L)));
+        assertEquals(1, graphService.syncChanges());
+        assertEquals(12, graphService.getChangeWatermark());
+
+        // 11 commits after the watermark moved past it
+        when(inventoryServiceAccessor.getFlightChanges(eq(12L), eq(Set.of(11L)), anyInt())).thenReturn(new FlightChanges(
+                List.of(new FlightChange(11, delBom.getFlightId(), "CANCELLED", null)), 12, false, List.of()));
+        assertEquals(1, graphService.syncChanges());
+        assertEquals(-1, graphService.getFlightGraph().getEdgeIndex(delBom.getFlightId()));
+
+        when(inventoryServiceAccessor.getFlightChanges(eq(12L), eq(Set.of()), anyInt())).thenReturn(new FlightChanges(List.of(), 12, false, List.of()));
+        assertEquals(0, graphService.syncChanges());
+        verify(inventoryServiceAccessor).getFlightChanges(eq(12L), eq(Set.of()), anyInt());
+    }
+
+    @Test
+    void syncChanges_GivesUpSkippedSequencesAfterTimeout() {
+        SearchConfig.Sync sync = new SearchConfig.Sync();
+        sync.setGapTimeoutSeconds(0);
+        when(searchConfig.getSync()).thenReturn(sync);
+        when(inventoryServiceAccessor.getChangesHead()).thenReturn(OptionalLong.of(10));
+        graphService.initializeGraphs();
+        when(inventoryServiceAccessor.getFlightChanges(eq(10L), any(), anyInt())).thenReturn(new FlightChanges(
+                List.of(new FlightChange(12, bomGoi.getFlightId(), "CANCELLED", null)), 12, false, List.of(11L)));
+        graphService.syncChanges();
+
+        when(inventoryServiceAccessor.getFlightChanges(eq(12L), any(), anyInt())).thenReturn(new FlightChanges(List.of(), 12, false, List.of()));
+        graphService.syncChanges();
+
+        verify(inventoryServiceAccessor).getFlightChanges(eq(12L), eq(Set.of()), anyInt());
+        verify(inventoryServiceAccessor, never()).getFlightChanges(anyLong(), eq(Set.of(11L)), anyInt());
+    }
+
+    @Test
+    void syncChanges_WaitsUntilWatermarkIsKnown() {
+        graphService.initializeGraphs();
+
+        assertEquals(0, graphService.syncChanges());
+        verify(inventoryServiceAccessor, never()).getFlightChanges(anyLong(), any(), anyInt());
+    }
+
+    private void streamFlights(Flight... flights) {
+        doAnswer(invocation -> {
+            Consumer<Flight> consumer = invocation.getArgument(0);
+            List.of(flights).forEach(consumer);
+            return (long) flights.length;
+        }).when(inventoryServiceAccessor).streamAllFlights(any());
+    }
+
+    private static Flight flight(String source, String destination, String cost, int duration) {
+        Flight flight = new Flight();
+        flight.setFlightId(UUID.randomUUID());
+        flight.setFlightNumber(source + destination);
+        flight.setSource(source);
+        flight.setDestination(destination);
+        flight.setCost(new BigDecimal(cost));
+        flight.setDuration(duration);
+        return flight;
+    }
+}
@@ -0,0 +1,82 @@
+package com.fbs.search.service;
+
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.model.FlightEdge;
+import com.fbs.search.model.FlightGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphSnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private GraphSnapshotStore store;
+    private Path snapshotPath;
+    private FlightEdge delBom;
+    private FlightEdge bomGoi;
+
+    @BeforeEach
+    void setUp() {
+        snapshotPath = tempDir.resolve("graph.snapshot");
+        SearchConfig config = new SearchConfig();
+        config.getSnapshot().setPath(snapshotPath.toString());
+        store = new GraphSnapshotStore();
+        ReflectionTestUtils.setField(store, "searchConfig", config);
+
+        delBom = new FlightEdge(UUID.randomUUID(), "DEL", "BOM", new BigDecimal("5000.50"), 120, "AI101",
+                LocalTime.of(23, 15), LocalTime.of(1, 15));
+        bomGoi = new FlightEdge(UUID.randomUUID(), "BOM", "GOI", new BigDecimal("3000.00"), 75, null);
+    }
+
+    @Test
+    void saveLoad_RoundTripsGraphAndHeader() {
+        FlightGraph graph = FlightGraph.builder().addEdge(delBom).addEdge(bomGoi).build();
+
+        store.save(graph, 4, 42);
+        GraphSnapshotStore.StoredGraph stored = store.load().orElseThrow();
+
+        assertEquals(4, stored.graphVersion());
+        assertEquals(42, stored.generation());
+        assertEquals(store.fingerprint(graph), stored.checksum());
+        assertEquals(2, stored.graph().getEdgeCount());
+        FlightEdge loaded = stored.graph().getEdge(stored.graph().getEdgeIndex(delBom.getFlightId()));
+        assertEquals(new BigDecimal("5000.50"), loaded.getCost());
+        assertEquals(120, loaded.getDuration());
+        assertEquals("AI101", loaded.getFlightNumber());
+        assertEquals(LocalTime.of(23, 15), loaded.getDepartureTime());
+        assertEquals(LocalTime.of(1, 15), loaded.getArrivalTime());
+        assertNull(stored.graph().getEdge(stored.graph().getEdgeIndex(bomGoi.getFlightId())).getFlightNumber());
+    }
+
+    @Test
+    void load_RejectsCorruptedOrMissingFile() throws Exception {
+        assertTrue(store.load().isEmpty());
+
+        store.save(FlightGraph.builder().addEdge(delBom).build(), 1, 1);
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(snapshotPath, bytes);
+
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    void fingerprint_IgnoresInventoryOrderButTracksContent() {
+        FlightGraph graph = FlightGraph.builder().addEdge(delBom).addEdge(bomGoi).build();
+        FlightGraph reordered = FlightGraph.builder().addEdge(bomGoi).addEdge(delBom).build();
+
+        assertEquals(store.fingerprint(graph), store.fingerprint(reordered));
+        assertNotEquals(store.fingerprint(graph), store.fingerprint(graph.withoutFlight(bomGoi.getFlightId())));
+    }
+}
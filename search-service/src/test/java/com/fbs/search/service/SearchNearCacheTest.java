@@ -0,0 +1,83 @@
+package com.fbs.search.service;
+
+import com.fbs.search.config.SearchConfig;
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchNearCacheTest {
+
+    private SearchNearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        nearCache = new SearchNearCache(new SearchConfig());
+    }
+
+    @Test
+    void get_CachesLoadedResultsAndCountsHits() {
+        AtomicInteger loads = new AtomicInteger();
+        CachedSearchResult result = new CachedSearchResult(List.of());
+
+        for (int i = 0; i < 3; i++) {
+            Optional<CachedSearchResult> found = nearCache.get("AMD", "BLR", "CHEAPEST", () -> {
+                loads.incrementAndGet();
+                return Optional.of(result);
+            });
+            assertSame(result, found.orElseThrow());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2L, nearCache.getStats().get("hits"));
+        assertEquals(1L, nearCache.getStats().get("misses"));
+    }
+
+    @Test
+    void get_DoesNotCacheAbsentResults() {
+        AtomicInteger loads = new AtomicInteger();
+
+        nearCache.get("AMD", "BLR", "CHEAPEST", () -> { loads.incrementAndGet(); return Optional.empty(); });
+        nearCache.get("AMD", "BLR", "CHEAPEST", () -> { loads.incrementAndGet(); return Optional.empty(); });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateAll_ForcesReload() {
+        AtomicInteger loads = new AtomicInteger();
+        CachedSearchResult result = new CachedSearchResult(List.of());
+
+        nearCache.get("AMD", "BLR", "FASTEST", () -> { loads.incrementAndGet(); return Optional.of(result); });
+        nearCache.invalidateAll();
+        nearCache.get("AMD", "BLR", "FASTEST", () -> { loads.incrementAndGet(); return Optional.of(result); });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateFlight_DropsOnlyEntriesUsingTheFlight() {
+        UUID cancelled = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+        CachedSearchResult viaCancelled = new CachedSearchResult(List.of(
+                new CachedFlightPath(new BigDecimal("5000.00"), 120, List.of(UUID.randomUUID(), cancelled))));
+        CachedSearchResult direct = new CachedSearchResult(List.of(
+                new CachedFlightPath(new BigDecimal("9000.00"), 150, List.of(UUID.randomUUID()))));
+
+        nearCache.get("AMD", "BLR", "CHEAPEST", () -> { loads.incrementAndGet(); return Optional.of(viaCancelled); });
+        nearCache.get("AMD", "BLR", "FASTEST", () -> { loads.incrementAndGet(); return Optional.of(direct); });
+        nearCache.invalidateFlight(cancelled);
+        nearCache.get("AMD", "BLR", "CHEAPEST", () -> { loads.incrementAndGet(); return Optional.of(direct); });
+        nearCache.get("AMD", "BLR", "FASTEST", () -> { loads.incrementAndGet(); return Optional.of(direct); });
+
+        assertEquals(3, loads.get());
+    }
+}
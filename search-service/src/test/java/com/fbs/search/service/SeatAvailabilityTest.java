@@ -0,0 +1,67 @@
+package com.fbs.search.service;
+
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import com.fbs.search.model.FlightEdge;
+import com.fbs.search.model.FlightGraph;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatAvailabilityTest {
+
+    private final SeatAvailability seats = new SeatAvailability();
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID direct = UUID.randomUUID();
+
+    @Test
+    void filter_DropsPathsWithALegShortOfSeats() {
+        seats.update(first, 5);
+        seats.update(second, 1);
+        seats.update(direct, 0);
+        CachedSearchResult result = new CachedSearchResult(List.of(path(first, second), path(direct)));
+
+        assertEquals(List.of(List.of(first, second)), flights(seats.filter(result, 1)));
+        assertTrue(seats.filter(result, 2).getPaths().isEmpty());
+        assertEquals(3L, seats.getStats().get("filteredPaths"));
+    }
+
+    @Test
+    void filter_KeepsFlightsWithoutCounterAndReturnsUnchangedResult() {
+        seats.update(first, 3);
+        CachedSearchResult result = new CachedSearchResult(List.of(path(first, second), path(direct)));
+
+        assertSame(result, seats.filter(result, 3));
+
+        seats.update(direct, 9);
+        seats.update(direct, 2);
+        assertEquals(List.of(List.of(first, second)), flights(seats.filter(result, 3)));
+    }
+
+    @Test
+    void retain_DropsCountersOfFlightsLeftOutOfTheGraph() {
+        seats.update(first, 3);
+        seats.update(direct, 3);
+        FlightGraph graph = FlightGraph.builder()
+                .addEdge(new FlightEdge(first, "AMD", "BOM", new BigDecimal("2500.00"), 70, "6E201"))
+                .build();
+
+        seats.retain(graph);
+
+        assertEquals(3, seats.get(first));
+        assertNull(seats.get(direct));
+    }
+
+    private static CachedFlightPath path(UUID... flights) {
+        return new CachedFlightPath(BigDecimal.ONE, 60, List.of(flights));
+    }
+
+    private static List<List<UUID>> flights(CachedSearchResult result) {
+        return result.getPaths().stream().map(CachedFlightPath::getFlights).toList();
+    }
+}
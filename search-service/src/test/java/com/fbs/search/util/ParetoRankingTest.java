@@ -0,0 +1,42 @@
+package com.fbs.search.util;
+
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParetoRankingTest {
+
+    private final CachedFlightPath cheap = path("5000.00", 300);
+    private final CachedFlightPath middle = path("6000.00", 180);
+    private final CachedFlightPath fast = path("9000.00", 150);
+
+    @Test
+    void rank_WeightsSelectDifferentPointsOfOneFront() {
+        CachedSearchResult front = new CachedSearchResult(List.of(cheap, middle, fast));
+
+        assertSame(cheap, ParetoRanking.rank(front, 1.0).getPaths().get(0));
+        assertSame(fast, ParetoRanking.rank(front, 0.0).getPaths().get(0));
+        assertSame(middle, ParetoRanking.rank(front, 0.5).getPaths().get(0));
+    }
+
+    @Test
+    void rank_LeavesCachedResultUntouched() {
+        CachedSearchResult front = new CachedSearchResult(List.of(cheap, middle, fast));
+
+        CachedSearchResult ranked = ParetoRanking.rank(front, 0.0);
+
+        assertEquals(List.of(cheap, middle, fast), front.getPaths());
+        assertEquals(List.of(fast, middle, cheap), ranked.getPaths());
+        assertEquals(front.getComputedAt(), ranked.getComputedAt());
+    }
+
+    private static CachedFlightPath path(String cost, int duration) {
+        return new CachedFlightPath(new BigDecimal(cost), duration, List.of(UUID.randomUUID()));
+    }
+}
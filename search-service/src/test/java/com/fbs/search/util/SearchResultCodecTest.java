@@ -0,0 +1,56 @@
+package com.fbs.search.util;
+
+import com.fbs.search.model.CachedFlightPath;
+import com.fbs.search.model.CachedSearchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCodecTest {
+
+    @Test
+    void encodeDecode_RoundTripsPaths() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        CachedSearchResult result = new CachedSearchResult(List.of(
+                new CachedFlightPath(new BigDecimal("5500.75"), 170, List.of(first, second)),
+                new CachedFlightPath(new BigDecimal("9000.00"), 150, List.of(second))));
+        result.setComputedAt(LocalDateTime.of(2026, 1, 15, 10, 30, 0, 123_000_000));
+
+        byte[] payload = SearchResultCodec.encode(result);
+        CachedSearchResult decoded = SearchResultCodec.decode(payload);
+
+        assertTrue(SearchResultCodec.isBinary(payload));
+        assertEquals(result.getComputedAt(), decoded.getComputedAt());
+        assertEquals(2, decoded.getPaths().size());
+        assertEquals(new BigDecimal("5500.75"), decoded.getPaths().get(0).getCost());
+        assertEquals(170, decoded.getPaths().get(0).getDuration());
+        assertEquals(List.of(first, second), decoded.getPaths().get(0).getFlights());
+        assertEquals(List.of(second), decoded.getPaths().get(1).getFlights());
+    }
+
+    @Test
+    void encode_IsSmallerThanJson() throws Exception {
+        CachedSearchResult result = new CachedSearchResult(List.of(
+                new CachedFlightPath(new BigDecimal("5500.75"), 170, List.of(UUID.randomUUID(), UUID.randomUUID()))));
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        assertTrue(SearchResultCodec.encode(result).length < objectMapper.writeValueAsBytes(result).length / 2);
+    }
+
+    @Test
+    void isBinary_RejectsLegacyJsonAndDecodeRejectsUnknownVersion() {
+        assertFalse(SearchResultCodec.isBinary("{\"paths\":[]}".getBytes()));
+        assertThrows(IllegalArgumentException.class,
+                () -> SearchResultCodec.decode(new byte[]{SearchResultCodec.MAGIC_0, SearchResultCodec.MAGIC_1, 99}));
+        assertThrows(IllegalArgumentException.class,
+                () -> SearchResultCodec.decode(new byte[]{SearchResultCodec.MAGIC_0, SearchResultCodec.MAGIC_1, 1, 0}));
+    }
+}